@@ -0,0 +1,88 @@
+package io.izzel.taboolib.module.ipc.benchmark;
+
+import io.izzel.taboolib.module.ipc.MessageTopic;
+import io.izzel.taboolib.module.ipc.TabooIpcClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One publisher fanning out to several subscribers through a topic.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Group)
+public class BroadcastBenchmark {
+
+    private static final int TOPIC = 1;
+
+    @Param({"64", "256", "1024", "4096", "max"})
+    public String payloadSize;
+
+    private IpcFixture fixture;
+    private TabooIpcClient publisher;
+    private MessageTopic topic;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fixture = new IpcFixture("broadcast");
+        publisher = fixture.connect();
+        topic = publisher.openTopic(TOPIC);
+        payload = IpcFixture.payload(payloadSize, topic.getMaxMessageLength());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close(publisher);
+    }
+
+    @Benchmark
+    @Group("broadcast")
+    @GroupThreads(1)
+    public void publish() {
+        publisher.publish(topic, payload);
+    }
+
+    @Benchmark
+    @Group("broadcast")
+    @GroupThreads(3)
+    public int receive(Subscriber subscriber) {
+        int count = subscriber.subscriber.receive(subscriber, 64);
+        subscriber.messages += count;
+        subscriber.lost = subscriber.subscriber.getLostCount();
+        return count;
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Subscriber implements MessageTopic.TopicHandler {
+
+        public long messages;
+        public long lost;
+        private TabooIpcClient client;
+        private MessageTopic.Subscriber subscriber;
+
+        @Setup(Level.Trial)
+        public void setup(BroadcastBenchmark benchmark) throws Exception {
+            client = benchmark.fixture.connect();
+            subscriber = client.openTopic(TOPIC).subscribe(client.getId());
+        }
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            messages = 0;
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            subscriber.close();
+            client.disconnect();
+        }
+
+        @Override
+        public void onMessage(int type, ByteBuffer buffer) {
+        }
+    }
+}
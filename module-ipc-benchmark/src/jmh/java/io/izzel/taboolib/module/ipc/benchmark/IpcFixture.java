@@ -0,0 +1,55 @@
+package io.izzel.taboolib.module.ipc.benchmark;
+
+import io.izzel.taboolib.module.ipc.TabooIpcClient;
+import io.izzel.taboolib.module.ipc.TabooIpcClientImpl;
+import io.izzel.taboolib.module.ipc.TabooIpcConfig;
+
+import java.io.File;
+
+/**
+ * Shared file setup for the benchmarks, the file is placed in -Dipc.dir (tmpfs by default).
+ */
+public class IpcFixture {
+
+    private final File file;
+    private final TabooIpcConfig config;
+
+    public IpcFixture(String name) {
+        File dir = new File(System.getProperty("ipc.dir", "/dev/shm"));
+        if (!dir.isDirectory()) {
+            dir = new File(System.getProperty("java.io.tmpdir"));
+        }
+        this.file = new File(dir, "taboolib-ipc-" + name + "-" + System.nanoTime() + ".bin");
+        this.file.deleteOnExit();
+        this.config = file::getPath;
+    }
+
+    public TabooIpcClient connect() throws Exception {
+        TabooIpcClient client = new TabooIpcClientImpl();
+        if (!client.connect(config)) {
+            throw new IllegalStateException("connect failed: " + file);
+        }
+        return client;
+    }
+
+    public void close(TabooIpcClient... clients) throws Exception {
+        for (TabooIpcClient client : clients) {
+            if (client != null) {
+                client.disconnect();
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * "max" resolves to the largest message a block accepts.
+     */
+    public static byte[] payload(String size, int maxMessageLength) {
+        int length = "max".equals(size) ? maxMessageLength : Integer.parseInt(size);
+        byte[] bytes = new byte[Math.min(length, maxMessageLength)];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        return bytes;
+    }
+}
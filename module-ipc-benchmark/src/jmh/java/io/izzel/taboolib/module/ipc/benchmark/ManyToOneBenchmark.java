@@ -0,0 +1,76 @@
+package io.izzel.taboolib.module.ipc.benchmark;
+
+import io.izzel.taboolib.module.ipc.MessageBlock;
+import io.izzel.taboolib.module.ipc.TabooIpcClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Several senders, each with its own client, writing into a single reader.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Group)
+public class ManyToOneBenchmark {
+
+    @Param({"64", "256", "1024", "4096", "max"})
+    public String payloadSize;
+
+    private IpcFixture fixture;
+    private TabooIpcClient reader;
+    private int maxMessageLength;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fixture = new IpcFixture("many-to-one");
+        reader = fixture.connect();
+        maxMessageLength = reader.getPeer(reader.getId()).getRing().getMaxMessageLength();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close(reader);
+    }
+
+    @Benchmark
+    @Group("manyToOne")
+    @GroupThreads(4)
+    public boolean send(Sender sender, OneToOneBenchmark.SendCounters counters) {
+        if (sender.client.sendMessage(sender.payload, sender.target)) {
+            counters.sent++;
+            return true;
+        }
+        counters.backPressure++;
+        return false;
+    }
+
+    @Benchmark
+    @Group("manyToOne")
+    @GroupThreads(1)
+    public int read(OneToOneBenchmark.ReadCounters counters) {
+        int count = reader.readMessages(counters, 64);
+        counters.messages += count;
+        return count;
+    }
+
+    @State(Scope.Thread)
+    public static class Sender {
+
+        private TabooIpcClient client;
+        private MessageBlock target;
+        private byte[] payload;
+
+        @Setup(Level.Trial)
+        public void setup(ManyToOneBenchmark benchmark) throws Exception {
+            client = benchmark.fixture.connect();
+            target = client.getPeer(benchmark.reader.getId());
+            payload = IpcFixture.payload(benchmark.payloadSize, benchmark.maxMessageLength);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            client.disconnect();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package io.izzel.taboolib.module.ipc.benchmark;
+
+import io.izzel.taboolib.module.ipc.MessageBlock;
+import io.izzel.taboolib.module.ipc.MessageRing;
+import io.izzel.taboolib.module.ipc.TabooIpcClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One sender and one reader, throughput in messages per second.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Group)
+public class OneToOneBenchmark {
+
+    @Param({"64", "256", "1024", "4096", "max"})
+    public String payloadSize;
+
+    private IpcFixture fixture;
+    private TabooIpcClient sender;
+    private TabooIpcClient reader;
+    private MessageBlock target;
+    private byte[] payload;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fixture = new IpcFixture("one-to-one");
+        sender = fixture.connect();
+        reader = fixture.connect();
+        target = sender.getPeer(reader.getId());
+        payload = IpcFixture.payload(payloadSize, target.getRing().getMaxMessageLength());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        fixture.close(sender, reader);
+    }
+
+    @Benchmark
+    @Group("oneToOne")
+    @GroupThreads(1)
+    public boolean send(SendCounters counters) {
+        if (sender.sendMessage(payload, target)) {
+            counters.sent++;
+            return true;
+        }
+        counters.backPressure++;
+        return false;
+    }
+
+    @Benchmark
+    @Group("oneToOne")
+    @GroupThreads(1)
+    public int read(ReadCounters counters) {
+        int count = reader.readMessages(counters, 64);
+        counters.messages += count;
+        return count;
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class SendCounters {
+
+        public long sent;
+        public long backPressure;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            sent = 0;
+            backPressure = 0;
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class ReadCounters implements MessageRing.MessageHandler {
+
+        public long messages;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            messages = 0;
+        }
+
+        @Override
+        public void onMessage(int type, MessageBlock block, long offset, int length) {
+        }
+    }
+}
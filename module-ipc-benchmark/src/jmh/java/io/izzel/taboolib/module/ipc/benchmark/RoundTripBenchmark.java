@@ -0,0 +1,69 @@
+package io.izzel.taboolib.module.ipc.benchmark;
+
+import io.izzel.taboolib.module.ipc.MessageBlock;
+import io.izzel.taboolib.module.ipc.TabooIpcClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ping-pong against an echo client, the sample mode reports p50/p99/p999 round-trip latency.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RoundTripBenchmark {
+
+    @Param({"64", "256", "1024", "4096", "max"})
+    public String payloadSize;
+
+    private IpcFixture fixture;
+    private TabooIpcClient client;
+    private TabooIpcClient echo;
+    private MessageBlock echoBlock;
+    private byte[] payload;
+    private byte[] reply;
+    private Thread echoThread;
+    private volatile boolean running;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        fixture = new IpcFixture("round-trip");
+        client = fixture.connect();
+        echo = fixture.connect();
+        echoBlock = client.getPeer(echo.getId());
+        MessageBlock clientBlock = echo.getPeer(client.getId());
+        payload = IpcFixture.payload(payloadSize, echoBlock.getRing().getMaxMessageLength());
+        reply = new byte[payload.length];
+        running = true;
+        echoThread = new Thread(() -> {
+            byte[] buf = new byte[payload.length];
+            while (running) {
+                if (echo.readMessage(buf)) {
+                    while (!echo.sendMessage(buf, clientBlock) && running) {
+                        Thread.yield();
+                    }
+                }
+            }
+        }, "TabooIpc-Echo");
+        echoThread.setDaemon(true);
+        echoThread.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        running = false;
+        echoThread.join();
+        fixture.close(client, echo);
+    }
+
+    @Benchmark
+    public byte[] roundTrip() {
+        while (!client.sendMessage(payload, echoBlock)) {
+            Thread.yield();
+        }
+        while (!client.readMessage(reply)) {
+        }
+        return reply;
+    }
+}
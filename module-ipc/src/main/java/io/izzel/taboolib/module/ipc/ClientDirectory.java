@@ -0,0 +1,113 @@
+package io.izzel.taboolib.module.ipc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registry of connected clients kept in the file header right after the topic table.
+ * Each entry is [int clientId][int reserved][long blockOffset], an entry is live as long as the block
+ * it points to is still owned by that client and its timestamp is younger than timeout.
+ */
+public class ClientDirectory {
+
+    public static final int DIRECTORY_OFFSET = MessageTopic.TOPIC_TABLE_OFFSET + MessageTopic.MAX_TOPICS * MessageTopic.TOPIC_ENTRY_LENGTH;
+    public static final int ENTRY_LENGTH = 16;
+
+    private final MemorySegments segments;
+    private final long blockSize;
+    private final long timeout;
+    private final int capacity;
+
+    public ClientDirectory(MemorySegments segments, long blockSize, long timeout) {
+        this.segments = segments;
+        this.blockSize = blockSize;
+        this.timeout = timeout;
+        this.capacity = (int) ((blockSize - DIRECTORY_OFFSET) / ENTRY_LENGTH);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public boolean register(int clientId, long blockOffset) throws Exception {
+        MemoryMappedFile header = segments.getHeader();
+        for (int i = 0; i < capacity; i++) {
+            long entry = entry(i);
+            int prevId = header.getIntVolatile(entry);
+            if ((prevId == 0 || !isLive(prevId, header.getLongVolatile(entry + 8))) && header.compareAndSwapInt(entry, prevId, clientId)) {
+                header.putLongVolatile(entry + 8, blockOffset);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void unregister(int clientId) {
+        MemoryMappedFile header = segments.getHeader();
+        for (int i = 0; i < capacity; i++) {
+            header.compareAndSwapInt(entry(i), clientId, 0);
+        }
+    }
+
+    /**
+     * Global offset of the block owned by clientId, or -1 when the client is unknown or dead.
+     */
+    public long lookup(int clientId) throws Exception {
+        MemoryMappedFile header = segments.getHeader();
+        for (int i = 0; i < capacity; i++) {
+            long entry = entry(i);
+            if (header.getIntVolatile(entry) == clientId) {
+                long offset = header.getLongVolatile(entry + 8);
+                return isLive(clientId, offset) ? offset : -1;
+            }
+        }
+        return -1;
+    }
+
+    public Map<Integer, Long> getPeers() throws Exception {
+        MemoryMappedFile header = segments.getHeader();
+        Map<Integer, Long> peers = new LinkedHashMap<>();
+        for (int i = 0; i < capacity; i++) {
+            long entry = entry(i);
+            int id = header.getIntVolatile(entry);
+            if (id != 0) {
+                long offset = header.getLongVolatile(entry + 8);
+                if (isLive(id, offset)) {
+                    peers.put(id, offset);
+                }
+            }
+        }
+        return peers;
+    }
+
+    /**
+     * Clears entries of clients that stopped heartbeating, returns the number of entries removed.
+     * Their blocks are taken over by the next login once the timestamp is stale.
+     */
+    public int sweep() throws Exception {
+        MemoryMappedFile header = segments.getHeader();
+        int removed = 0;
+        for (int i = 0; i < capacity; i++) {
+            long entry = entry(i);
+            int id = header.getIntVolatile(entry);
+            if (id != 0 && !isLive(id, header.getLongVolatile(entry + 8)) && header.compareAndSwapInt(entry, id, 0)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    private boolean isLive(int clientId, long blockOffset) throws Exception {
+        if (blockOffset <= 0 || blockOffset >= segments.getLength()) {
+            return false;
+        }
+        int index = (int) (blockOffset / segments.getSegmentSize());
+        MemoryMappedFile file = segments.getSegment(index);
+        long offset = blockOffset - index * segments.getSegmentSize();
+        return file.getIntVolatile(offset) == clientId && Math.abs(System.currentTimeMillis() - file.getLongVolatile(offset + 4)) <= timeout;
+    }
+
+    private static long entry(int index) {
+        return DIRECTORY_OFFSET + (long) index * ENTRY_LENGTH;
+    }
+}
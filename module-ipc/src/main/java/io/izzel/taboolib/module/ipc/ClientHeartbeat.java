@@ -0,0 +1,75 @@
+package io.izzel.taboolib.module.ipc;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the block of a client and the topic blocks it has open alive, and periodically sweeps
+ * dead entries out of the directory.
+ */
+public class ClientHeartbeat implements Runnable {
+
+    private final MessageBlock block;
+    private final ClientDirectory directory;
+    private final long interval;
+    private final Set<MessageTopic> topics = ConcurrentHashMap.newKeySet();
+    private volatile boolean running;
+    private Thread thread;
+
+    public ClientHeartbeat(MessageBlock block, ClientDirectory directory, long interval) {
+        this.block = block;
+        this.directory = directory;
+        this.interval = Math.max(1, interval);
+    }
+
+    public synchronized void start(int clientId) {
+        if (running) {
+            throw new IllegalStateException();
+        }
+        running = true;
+        thread = new Thread(this, "TabooIpc-Heartbeat-" + clientId);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        thread.interrupt();
+        thread.join();
+        thread = null;
+    }
+
+    /**
+     * Keeps the topic block alive until the topic is closed, even when nobody publishes or polls it.
+     */
+    public void addTopic(MessageTopic topic) {
+        topics.add(topic);
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            block.updateTimestamp();
+            for (MessageTopic topic : topics) {
+                if (topic.isClosed()) {
+                    topics.remove(topic);
+                } else {
+                    topic.getBlock().updateTimestamp();
+                }
+            }
+            try {
+                directory.sweep();
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                break;
+            }
+        }
+    }
+}
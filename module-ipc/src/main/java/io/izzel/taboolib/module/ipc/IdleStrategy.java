@@ -0,0 +1,108 @@
+package io.izzel.taboolib.module.ipc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decides what a polling thread does when a poll returned no work.
+ */
+public interface IdleStrategy {
+
+    void idle(int workCount);
+
+    default void reset() {
+    }
+
+    static IdleStrategy busySpin() {
+        return new BusySpin();
+    }
+
+    static IdleStrategy yielding() {
+        return new Yielding();
+    }
+
+    static IdleStrategy backoff(long maxParkNanos) {
+        return new Backoff(100, 10, TimeUnit.MICROSECONDS.toNanos(1), maxParkNanos);
+    }
+
+    static IdleStrategy park(long parkNanos) {
+        return new Park(parkNanos);
+    }
+
+    class BusySpin implements IdleStrategy {
+
+        @Override
+        public void idle(int workCount) {
+        }
+    }
+
+    class Yielding implements IdleStrategy {
+
+        @Override
+        public void idle(int workCount) {
+            if (workCount <= 0) {
+                Thread.yield();
+            }
+        }
+    }
+
+    class Park implements IdleStrategy {
+
+        private final long parkNanos;
+
+        public Park(long parkNanos) {
+            this.parkNanos = parkNanos;
+        }
+
+        @Override
+        public void idle(int workCount) {
+            if (workCount <= 0) {
+                LockSupport.parkNanos(parkNanos);
+            }
+        }
+    }
+
+    /**
+     * Spins, then yields, then parks with an exponentially growing period capped at maxParkNanos.
+     */
+    class Backoff implements IdleStrategy {
+
+        private final long maxSpins;
+        private final long maxYields;
+        private final long minParkNanos;
+        private final long maxParkNanos;
+        private long spins;
+        private long yields;
+        private long parkNanos;
+
+        public Backoff(long maxSpins, long maxYields, long minParkNanos, long maxParkNanos) {
+            this.maxSpins = maxSpins;
+            this.maxYields = maxYields;
+            this.minParkNanos = minParkNanos;
+            this.maxParkNanos = Math.max(minParkNanos, maxParkNanos);
+            reset();
+        }
+
+        @Override
+        public void idle(int workCount) {
+            if (workCount > 0) {
+                reset();
+            } else if (spins < maxSpins) {
+                spins++;
+            } else if (yields < maxYields) {
+                yields++;
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(parkNanos);
+                parkNanos = Math.min(parkNanos << 1, maxParkNanos);
+            }
+        }
+
+        @Override
+        public void reset() {
+            spins = 0;
+            yields = 0;
+            parkNanos = minParkNanos;
+        }
+    }
+}
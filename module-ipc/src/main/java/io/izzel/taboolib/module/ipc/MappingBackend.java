@@ -0,0 +1,135 @@
+package io.izzel.taboolib.module.ipc;
+
+import io.izzel.taboolib.util.UNSAFE;
+
+import java.lang.reflect.Method;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Maps a region of the shared file into memory and releases it again.
+ */
+public interface MappingBackend {
+
+    Mapping map(FileChannel channel, long position, long size) throws Exception;
+
+    /**
+     * FileChannel.map plus an explicit cleaner on Java 9 and later, the FileChannelImpl.map0 path on Java 8.
+     */
+    static MappingBackend getDefault() {
+        return System.getProperty("java.specification.version").startsWith("1.") ? new Legacy() : new Nio();
+    }
+
+    interface Mapping {
+
+        long getAddress();
+
+        long getSize();
+
+        /**
+         * Buffer backing this mapping, null when the backend does not create one.
+         */
+        ByteBuffer getBuffer();
+
+        void unmap() throws Exception;
+    }
+
+    /**
+     * Maps through FileChannel.map, the region is limited to Integer.MAX_VALUE bytes.
+     */
+    class Nio implements MappingBackend {
+
+        private static final long ADDRESS_OFFSET;
+
+        static {
+            try {
+                ADDRESS_OFFSET = UNSAFE.objectFieldOffset(Buffer.class.getDeclaredField("address"));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public Mapping map(FileChannel channel, long position, long size) throws Exception {
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("segment too large");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+            long address = UNSAFE.getLong(buffer, ADDRESS_OFFSET);
+            return new Mapping() {
+                @Override
+                public long getAddress() {
+                    return address;
+                }
+
+                @Override
+                public long getSize() {
+                    return size;
+                }
+
+                @Override
+                public ByteBuffer getBuffer() {
+                    return buffer;
+                }
+
+                @Override
+                public void unmap() {
+                    UNSAFE.invokeCleaner(buffer);
+                }
+            };
+        }
+    }
+
+    /**
+     * Reflects into FileChannelImpl.map0/unmap0, only available with the Java 8 signature.
+     */
+    @SuppressWarnings("restriction")
+    class Legacy implements MappingBackend {
+
+        private static Method mmap;
+        private static Method unmmap;
+
+        private static synchronized void init() throws Exception {
+            if (mmap == null) {
+                Class<?> cls = Class.forName("sun.nio.ch.FileChannelImpl");
+                mmap = getMethod(cls, "map0", int.class, long.class, long.class);
+                unmmap = getMethod(cls, "unmap0", long.class, long.class);
+            }
+        }
+
+        private static Method getMethod(Class<?> cls, String name, Class<?>... params) throws Exception {
+            Method m = cls.getDeclaredMethod(name, params);
+            m.setAccessible(true);
+            return m;
+        }
+
+        @Override
+        public Mapping map(FileChannel channel, long position, long size) throws Exception {
+            init();
+            long address = (long) mmap.invoke(channel, 1, position, size);
+            return new Mapping() {
+                @Override
+                public long getAddress() {
+                    return address;
+                }
+
+                @Override
+                public long getSize() {
+                    return size;
+                }
+
+                @Override
+                public ByteBuffer getBuffer() {
+                    return null;
+                }
+
+                @Override
+                public void unmap() throws Exception {
+                    unmmap.invoke(null, address, size);
+                }
+            };
+        }
+    }
+}
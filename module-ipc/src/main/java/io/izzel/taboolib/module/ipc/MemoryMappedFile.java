@@ -1,48 +1,79 @@
 package io.izzel.taboolib.module.ipc;
 
 import io.izzel.taboolib.util.UNSAFE;
-import sun.nio.ch.FileChannelImpl;
 
-import java.lang.reflect.Method;
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.channels.FileChannel;
 
-@SuppressWarnings("restriction")
 public class MemoryMappedFile {
-    private static final Method mmap;
-    private static final Method unmmap;
-    private static final int BYTE_ARRAY_OFFSET;
+    private static final int BYTE_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
+    private static Constructor<?> directBuffer;
 
+    private final MappingBackend.Mapping mapping;
     private long addr, size;
 
-    static {
+    private static Constructor<?> getDirectBufferConstructor() throws Exception {
+        Class<?> cls = Class.forName("java.nio.DirectByteBuffer");
+        Constructor<?> c;
         try {
-            mmap = getMethod(FileChannelImpl.class, "map0", int.class, long.class, long.class);
-            unmmap = getMethod(FileChannelImpl.class, "unmap0", long.class, long.class);
-            BYTE_ARRAY_OFFSET = UNSAFE.arrayBaseOffset(byte[].class);
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+            c = cls.getDeclaredConstructor(long.class, int.class);
+        } catch (NoSuchMethodException e) {
+            c = cls.getDeclaredConstructor(long.class, long.class);
         }
+        c.setAccessible(true);
+        return c;
     }
 
-    private static Method getMethod(Class<?> cls, String name, Class<?>... params) throws Exception {
-        Method m = cls.getDeclaredMethod(name, params);
-        m.setAccessible(true);
-        return m;
+    protected MemoryMappedFile(FileChannel ch, long len) throws Exception {
+        this(ch, 0, len, MappingBackend.getDefault());
     }
 
-    protected MemoryMappedFile(FileChannel ch, long len) throws Exception {
+    protected MemoryMappedFile(FileChannel ch, long position, long len, MappingBackend backend) throws Exception {
+        this.mapping = backend.map(ch, position, len);
         this.size = len;
-        this.addr = (long) mmap.invoke(ch, 1, 0L, this.size);
+        this.addr = mapping.getAddress();
     }
 
     protected void unmap() throws Exception {
-        unmmap.invoke(null, addr, this.size);
+        mapping.unmap();
     }
 
     public long getAddress() {
         return addr;
     }
 
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * Direct buffer backed by the mapped region, no data is copied.
+     */
+    public ByteBuffer asByteBuffer(long pos, int length) {
+        if (pos < 0 || pos + length > size) {
+            throw new IllegalArgumentException();
+        }
+        ByteBuffer mapped = mapping.getBuffer();
+        if (mapped != null) {
+            ByteBuffer buffer = mapped.duplicate();
+            buffer.position((int) pos).limit((int) pos + length);
+            return buffer.slice().order(ByteOrder.nativeOrder());
+        }
+        try {
+            if (directBuffer == null) {
+                directBuffer = getDirectBufferConstructor();
+            }
+            Object buffer = directBuffer.getParameterTypes()[1] == int.class
+                    ? directBuffer.newInstance(addr + pos, length)
+                    : directBuffer.newInstance(addr + pos, (long) length);
+            return ((ByteBuffer) buffer).order(ByteOrder.nativeOrder());
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public byte getByte(long pos) {
         return UNSAFE.getByte(pos + addr);
     }
@@ -0,0 +1,130 @@
+package io.izzel.taboolib.module.ipc;
+
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * The shared file split into equally sized segments that are mapped independently,
+ * so the region can grow without remapping what clients already hold.
+ * <p>
+ * Offsets used here are global file offsets, the first block of segment 0 is the file header
+ * and the segment count is published at {@link #SEGMENT_COUNT_OFFSET} of that header.
+ */
+public class MemorySegments {
+
+    public static final int SEGMENT_COUNT_OFFSET = 8;
+
+    private final String location;
+    private final MappingBackend backend;
+    private final long segmentSize;
+    private final int maxSegments;
+    private volatile MemoryMappedFile[] segments = new MemoryMappedFile[0];
+
+    public MemorySegments(String location, MappingBackend backend, long segmentSize, int maxSegments) {
+        this.location = location;
+        this.backend = backend;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(1, maxSegments);
+    }
+
+    public synchronized void open() throws Exception {
+        if (segments.length > 0) {
+            throw new IllegalStateException();
+        }
+        segments = new MemoryMappedFile[]{map(0)};
+    }
+
+    public synchronized void close() throws Exception {
+        for (MemoryMappedFile segment : segments) {
+            segment.unmap();
+        }
+        segments = new MemoryMappedFile[0];
+    }
+
+    public MemoryMappedFile getHeader() {
+        return segments[0];
+    }
+
+    public long getSegmentSize() {
+        return segmentSize;
+    }
+
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    /**
+     * Number of segments published by any client, some of them may not be mapped locally yet.
+     */
+    public int getSegmentCount() {
+        return Math.max(1, getHeader().getIntVolatile(SEGMENT_COUNT_OFFSET));
+    }
+
+    public long getLength() {
+        return segmentSize * getSegmentCount();
+    }
+
+    public MemoryMappedFile getSegment(int index) throws Exception {
+        MemoryMappedFile[] current = segments;
+        if (index < current.length) {
+            return current[index];
+        }
+        if (index >= getSegmentCount()) {
+            throw new IllegalArgumentException("segment " + index + " does not exist");
+        }
+        synchronized (this) {
+            current = segments;
+            if (index >= current.length) {
+                MemoryMappedFile[] grown = new MemoryMappedFile[index + 1];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                for (int i = current.length; i <= index; i++) {
+                    grown[i] = map(i);
+                }
+                segments = current = grown;
+            }
+            return current[index];
+        }
+    }
+
+    public MessageBlock getBlock(long offset, long blockSize) throws Exception {
+        int index = (int) (offset / segmentSize);
+        return new MessageBlock(getSegment(index), offset - index * segmentSize, blockSize);
+    }
+
+    /**
+     * Appends a segment unless another client already did so, returns false once maxSegments is reached.
+     */
+    public boolean grow(int expectedCount) throws Exception {
+        if (expectedCount >= maxSegments) {
+            return false;
+        }
+        MemoryMappedFile header = getHeader();
+        int stored = header.getIntVolatile(SEGMENT_COUNT_OFFSET);
+        if (Math.max(1, stored) != expectedCount) {
+            return true;
+        }
+        ensureLength(segmentSize * (expectedCount + 1));
+        header.compareAndSwapInt(SEGMENT_COUNT_OFFSET, stored, expectedCount + 1);
+        return true;
+    }
+
+    private MemoryMappedFile map(int index) throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(location, "rw")) {
+            long length = segmentSize * (index + 1);
+            if (raf.length() < length) {
+                raf.setLength(length);
+            }
+            try (FileChannel channel = raf.getChannel()) {
+                return new MemoryMappedFile(channel, segmentSize * index, segmentSize, backend);
+            }
+        }
+    }
+
+    private void ensureLength(long length) throws Exception {
+        try (RandomAccessFile raf = new RandomAccessFile(location, "rw")) {
+            if (raf.length() < length) {
+                raf.setLength(length);
+            }
+        }
+    }
+}
@@ -1,15 +1,20 @@
 package io.izzel.taboolib.module.ipc;
 
+import java.nio.ByteBuffer;
+
 public class MessageBlock {
 
     private final MemoryMappedFile file;
     private final long baseOffset;
     private final long size;
+    private final MessageRing ring;
+    private ByteBuffer buffer;
 
     public MessageBlock(MemoryMappedFile file, long baseOffset, long size) {
         this.file = file;
         this.baseOffset = baseOffset;
         this.size = size;
+        this.ring = new MessageRing(this);
     }
 
     public void reset() {
@@ -17,6 +22,11 @@ public class MessageBlock {
         updateTimestamp();
         putInt(12, 0);
         putInt(16, 0);
+        ring.reset();
+    }
+
+    public MessageRing getRing() {
+        return ring;
     }
 
     public int getId() {
@@ -43,6 +53,17 @@ public class MessageBlock {
         return file.getAddress() + baseOffset;
     }
 
+    /**
+     * Direct view over the whole block, positions match the offsets used by this class.
+     * The returned instance is shared, duplicate it before changing position or limit.
+     */
+    public ByteBuffer asByteBuffer() {
+        if (buffer == null) {
+            buffer = file.asByteBuffer(baseOffset, (int) size);
+        }
+        return buffer;
+    }
+
     public byte getByte(long pos) {
         return file.getByte(mapAddress(pos));
     }
@@ -131,6 +152,13 @@ public class MessageBlock {
         return file.getAndSetLong(mapAddress(pos), val);
     }
 
+    public void setMemory(long pos, long bytes, byte value) {
+        if (pos + bytes > size) {
+            throw new IllegalArgumentException();
+        }
+        file.setMemory(mapAddress(pos), bytes, value);
+    }
+
     private long mapAddress(long pos) {
         if (pos < size) {
             return baseOffset + pos;
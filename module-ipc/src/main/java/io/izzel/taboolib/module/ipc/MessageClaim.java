@@ -0,0 +1,104 @@
+package io.izzel.taboolib.module.ipc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reusable flyweight over a record reserved by {@link MessageRing#tryClaim(int, int, MessageClaim)}.
+ * Offsets passed to the put methods are relative to the start of the message payload.
+ */
+public class MessageClaim {
+
+    private MessageBlock block;
+    private ByteBuffer view;
+    private long recordOffset = -1;
+    private int length;
+
+    protected void wrap(MessageBlock block, long recordOffset, int length) {
+        if (this.block != block) {
+            this.block = block;
+            this.view = null;
+        }
+        this.recordOffset = recordOffset;
+        this.length = length;
+    }
+
+    public MessageBlock getBlock() {
+        return block;
+    }
+
+    public long getOffset() {
+        return recordOffset + MessageRing.RECORD_HEADER_LENGTH;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public boolean isClaimed() {
+        return recordOffset >= 0;
+    }
+
+    /**
+     * Direct view over the claimed payload, reused by subsequent claims against the same block.
+     */
+    public ByteBuffer buffer() {
+        checkClaimed();
+        if (view == null) {
+            view = block.asByteBuffer().duplicate().order(ByteOrder.nativeOrder());
+        }
+        view.clear();
+        view.position((int) getOffset()).limit((int) getOffset() + length);
+        return view;
+    }
+
+    public MessageClaim putByte(int index, byte val) {
+        block.putByte(map(index, 1), val);
+        return this;
+    }
+
+    public MessageClaim putInt(int index, int val) {
+        block.putInt(map(index, 4), val);
+        return this;
+    }
+
+    public MessageClaim putLong(int index, long val) {
+        block.putLong(map(index, 8), val);
+        return this;
+    }
+
+    public MessageClaim putBytes(int index, byte[] data, int offset, int length) {
+        block.setBytes(map(index, length), data, offset, length);
+        return this;
+    }
+
+    public void commit() {
+        checkClaimed();
+        block.putIntVolatile(recordOffset, length + MessageRing.RECORD_HEADER_LENGTH);
+        recordOffset = -1;
+    }
+
+    /**
+     * Turns the record into padding so the reader skips it.
+     */
+    public void abort() {
+        checkClaimed();
+        block.putInt(recordOffset + 4, MessageRing.PADDING_TYPE);
+        block.putIntVolatile(recordOffset, length + MessageRing.RECORD_HEADER_LENGTH);
+        recordOffset = -1;
+    }
+
+    private long map(int index, int size) {
+        checkClaimed();
+        if (index < 0 || index + size > length) {
+            throw new IndexOutOfBoundsException();
+        }
+        return getOffset() + index;
+    }
+
+    private void checkClaimed() {
+        if (recordOffset < 0) {
+            throw new IllegalStateException("not claimed");
+        }
+    }
+}
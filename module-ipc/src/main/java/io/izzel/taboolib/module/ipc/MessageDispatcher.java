@@ -0,0 +1,86 @@
+package io.izzel.taboolib.module.ipc;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Single thread draining the ring of a client and pushing every message to the registered handlers.
+ */
+public class MessageDispatcher implements Runnable {
+
+    private final TabooIpcClient client;
+    private final IdleStrategy idleStrategy;
+    private final int batchLimit;
+    private final List<MessageRing.MessageHandler> handlers = new CopyOnWriteArrayList<>();
+    private final MessageRing.MessageHandler dispatch = this::dispatch;
+    private volatile boolean running;
+    private volatile Thread thread;
+
+    public MessageDispatcher(TabooIpcClient client, IdleStrategy idleStrategy, int batchLimit) {
+        this.client = client;
+        this.idleStrategy = idleStrategy;
+        this.batchLimit = batchLimit;
+    }
+
+    public void addHandler(MessageRing.MessageHandler handler) {
+        handlers.add(handler);
+    }
+
+    public void removeHandler(MessageRing.MessageHandler handler) {
+        handlers.remove(handler);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            throw new IllegalStateException();
+        }
+        running = true;
+        thread = new Thread(this, "TabooIpc-Dispatcher-" + client.getId());
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public synchronized void stop() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        if (thread != Thread.currentThread()) {
+            thread.interrupt();
+            thread.join();
+        }
+        thread = null;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    public boolean isDispatcherThread() {
+        return thread == Thread.currentThread();
+    }
+
+    @Override
+    public void run() {
+        idleStrategy.reset();
+        while (running) {
+            int count;
+            try {
+                count = client.readMessages(dispatch, batchLimit);
+            } catch (IllegalStateException e) {
+                break;
+            }
+            idleStrategy.idle(count);
+        }
+    }
+
+    private void dispatch(int type, MessageBlock block, long offset, int length) {
+        for (MessageRing.MessageHandler handler : handlers) {
+            try {
+                handler.onMessage(type, block, offset, length);
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }
+    }
+}
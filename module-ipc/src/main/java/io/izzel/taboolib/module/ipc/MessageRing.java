@@ -0,0 +1,257 @@
+package io.izzel.taboolib.module.ipc;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.Consumer;
+
+/**
+ * Multi-producer single-consumer ring buffer living in the payload of a MessageBlock.
+ * <p>
+ * Header fields (relative to the block): 24 tail sequence, 32 head sequence, 40 back pressure counter.
+ * <p>
+ * Records are laid out as [int length][int type][payload] aligned to 8 bytes,
+ * a record is committed once its length is published.
+ */
+public class MessageRing {
+
+    public static final int TAIL_OFFSET = 24;
+    public static final int HEAD_OFFSET = 32;
+    public static final int BACK_PRESSURE_OFFSET = 40;
+    public static final int RECORD_HEADER_LENGTH = 8;
+    public static final int RECORD_ALIGNMENT = 8;
+    public static final int PADDING_TYPE = -1;
+
+    private static final long PAYLOAD_OFFSET = 64;
+
+    private final MessageBlock block;
+    private final long capacity;
+    private final int maxMessageLength;
+    private ByteBuffer readView;
+
+    public MessageRing(MessageBlock block) {
+        this.block = block;
+        this.capacity = block.getPayloadSize() & ~(RECORD_ALIGNMENT - 1);
+        this.maxMessageLength = (int) Math.min(Integer.MAX_VALUE, (capacity >> 1) - RECORD_HEADER_LENGTH);
+    }
+
+    public void reset() {
+        block.putLongVolatile(TAIL_OFFSET, 0);
+        block.putLongVolatile(HEAD_OFFSET, 0);
+        block.putLongVolatile(BACK_PRESSURE_OFFSET, 0);
+    }
+
+    public boolean write(int type, byte[] bytes, int index, int length) {
+        checkType(type);
+        checkLength(length);
+        int required = align(length + RECORD_HEADER_LENGTH);
+        long recordIndex = claim(required);
+        if (recordIndex < 0) {
+            return false;
+        }
+        putRecord(recordIndex, type, bytes, index, length);
+        return true;
+    }
+
+    public boolean write(int type, ByteBuffer src) {
+        checkType(type);
+        int length = src.remaining();
+        checkLength(length);
+        long recordIndex = claim(align(length + RECORD_HEADER_LENGTH));
+        if (recordIndex < 0) {
+            return false;
+        }
+        long pos = PAYLOAD_OFFSET + recordIndex + RECORD_HEADER_LENGTH;
+        if (src.hasArray()) {
+            block.setBytes(pos, src.array(), src.arrayOffset() + src.position(), length);
+            src.position(src.limit());
+        } else {
+            ByteBuffer target = block.asByteBuffer().duplicate();
+            target.position((int) pos);
+            target.put(src);
+        }
+        commit(recordIndex, type, length);
+        return true;
+    }
+
+    /**
+     * Reserves a record so the caller can encode straight into the mapped region,
+     * the claim must be followed by {@link MessageClaim#commit()} or {@link MessageClaim#abort()}.
+     */
+    public boolean tryClaim(int type, int length, MessageClaim claim) {
+        checkType(type);
+        checkLength(length);
+        long recordIndex = claim(align(length + RECORD_HEADER_LENGTH));
+        if (recordIndex < 0) {
+            return false;
+        }
+        block.putInt(PAYLOAD_OFFSET + recordIndex + 4, type);
+        claim.wrap(block, PAYLOAD_OFFSET + recordIndex, length);
+        return true;
+    }
+
+    /**
+     * Claims one contiguous region for all messages, either all of them are written or none.
+     */
+    public boolean writeBatch(int type, byte[][] messages) {
+        checkType(type);
+        long required = 0;
+        for (byte[] message : messages) {
+            checkLength(message.length);
+            required += align(message.length + RECORD_HEADER_LENGTH);
+        }
+        if (required == 0) {
+            return true;
+        }
+        if (required > capacity >> 1) {
+            throw new IllegalArgumentException("batch too long");
+        }
+        long recordIndex = claim((int) required);
+        if (recordIndex < 0) {
+            return false;
+        }
+        for (byte[] message : messages) {
+            putRecord(recordIndex, type, message, 0, message.length);
+            recordIndex += align(message.length + RECORD_HEADER_LENGTH);
+        }
+        return true;
+    }
+
+    /**
+     * Reads at most limit messages, the offset passed to handler is relative to the block so it can be read in place.
+     */
+    public int read(MessageHandler handler, int limit) {
+        long head = block.getLongVolatile(HEAD_OFFSET);
+        long headIndex = head % capacity;
+        long contiguous = capacity - headIndex;
+        long bytesRead = 0;
+        int count = 0;
+        try {
+            while (bytesRead < contiguous && count < limit) {
+                long recordIndex = headIndex + bytesRead;
+                int recordLength = block.getIntVolatile(PAYLOAD_OFFSET + recordIndex);
+                if (recordLength <= 0) {
+                    break;
+                }
+                bytesRead += align(recordLength);
+                int type = block.getInt(PAYLOAD_OFFSET + recordIndex + 4);
+                if (type == PADDING_TYPE) {
+                    continue;
+                }
+                count++;
+                handler.onMessage(type, block, PAYLOAD_OFFSET + recordIndex + RECORD_HEADER_LENGTH, recordLength - RECORD_HEADER_LENGTH);
+            }
+        } finally {
+            if (bytesRead > 0) {
+                block.setMemory(PAYLOAD_OFFSET + headIndex, bytesRead, (byte) 0);
+                block.putLongVolatile(HEAD_OFFSET, head + bytesRead);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads at most limit messages as views over the mapped region, the buffer is reused
+     * between messages and must not be retained by the consumer.
+     */
+    public int read(Consumer<ByteBuffer> consumer, int limit) {
+        if (readView == null) {
+            readView = block.asByteBuffer().duplicate().order(ByteOrder.nativeOrder());
+        }
+        ByteBuffer view = readView;
+        return read((type, block, offset, length) -> {
+            view.clear();
+            view.order(ByteOrder.nativeOrder()).position((int) offset).limit((int) offset + length);
+            consumer.accept(view);
+        }, limit);
+    }
+
+    public long size() {
+        long head = block.getLongVolatile(HEAD_OFFSET);
+        long tail = block.getLongVolatile(TAIL_OFFSET);
+        return tail - head;
+    }
+
+    public long remaining() {
+        return capacity - size();
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public int getMaxMessageLength() {
+        return maxMessageLength;
+    }
+
+    /**
+     * Number of writes rejected because the ring was full.
+     */
+    public long getBackPressureCount() {
+        return block.getLongVolatile(BACK_PRESSURE_OFFSET);
+    }
+
+    public MessageBlock getBlock() {
+        return block;
+    }
+
+    protected long claim(int required) {
+        long tail;
+        long recordIndex;
+        long padding;
+        do {
+            long head = block.getLongVolatile(HEAD_OFFSET);
+            tail = block.getLongVolatile(TAIL_OFFSET);
+            long available = capacity - (tail - head);
+            recordIndex = tail % capacity;
+            long toEnd = capacity - recordIndex;
+            padding = 0;
+            if (required > toEnd) {
+                if (required > available - toEnd) {
+                    block.getAndAddLong(BACK_PRESSURE_OFFSET, 1);
+                    return -1;
+                }
+                padding = toEnd;
+            } else if (required > available) {
+                block.getAndAddLong(BACK_PRESSURE_OFFSET, 1);
+                return -1;
+            }
+        } while (!block.compareAndSwapLong(TAIL_OFFSET, tail, tail + padding + required));
+        if (padding != 0) {
+            block.putInt(PAYLOAD_OFFSET + recordIndex + 4, PADDING_TYPE);
+            block.putIntVolatile(PAYLOAD_OFFSET + recordIndex, (int) padding);
+            recordIndex = 0;
+        }
+        return recordIndex;
+    }
+
+    protected void putRecord(long recordIndex, int type, byte[] bytes, int index, int length) {
+        block.setBytes(PAYLOAD_OFFSET + recordIndex + RECORD_HEADER_LENGTH, bytes, index, length);
+        commit(recordIndex, type, length);
+    }
+
+    protected void commit(long recordIndex, int type, int length) {
+        block.putInt(PAYLOAD_OFFSET + recordIndex + 4, type);
+        block.putIntVolatile(PAYLOAD_OFFSET + recordIndex, length + RECORD_HEADER_LENGTH);
+    }
+
+    private void checkType(int type) {
+        if (type == PADDING_TYPE) {
+            throw new IllegalArgumentException("reserved message type");
+        }
+    }
+
+    private void checkLength(int length) {
+        if (length < 0 || length > maxMessageLength) {
+            throw new IllegalArgumentException("message too long");
+        }
+    }
+
+    private static int align(int length) {
+        return (length + RECORD_ALIGNMENT - 1) & ~(RECORD_ALIGNMENT - 1);
+    }
+
+    public interface MessageHandler {
+
+        void onMessage(int type, MessageBlock block, long offset, int length);
+    }
+}
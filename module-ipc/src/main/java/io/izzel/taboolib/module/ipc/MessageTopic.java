@@ -0,0 +1,284 @@
+package io.izzel.taboolib.module.ipc;
+
+import io.izzel.taboolib.util.UNSAFE;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Broadcast log stored in a dedicated MessageBlock: a publisher appends a record once and every
+ * subscriber follows it with its own cursor. Records are overwritten when the log wraps, a subscriber
+ * that gets lapped skips to the latest record and counts the loss.
+ * <p>
+ * Header fields (relative to the block): 16 publisher lock, 24 tail intent, 32 tail, 40 latest record, 48 lock time.
+ * Topics are registered in a table inside the file header, see {@link #TOPIC_TABLE_OFFSET}.
+ * Subscriber slots follow the header and use the same [id][timestamp] layout as client blocks, plus the cursor.
+ */
+public class MessageTopic {
+
+    public static final int LOCK_OFFSET = 16;
+    public static final int TAIL_INTENT_OFFSET = 24;
+    public static final int TAIL_OFFSET = 32;
+    public static final int LATEST_OFFSET = 40;
+    public static final int LOCK_TIME_OFFSET = 48;
+    public static final int SUBSCRIBER_OFFSET = 64;
+    public static final int SUBSCRIBER_LENGTH = 24;
+    public static final int MAX_SUBSCRIBERS = 32;
+    public static final int TOPIC_TABLE_OFFSET = 64;
+    public static final int TOPIC_ENTRY_LENGTH = 16;
+    public static final int MAX_TOPICS = 64;
+
+    private static final long BUFFER_OFFSET = SUBSCRIBER_OFFSET + SUBSCRIBER_LENGTH * MAX_SUBSCRIBERS;
+
+    private final int topicId;
+    private final MessageBlock block;
+    private final long capacity;
+    private final int maxMessageLength;
+    private final long timeout;
+    private volatile boolean closed;
+
+    public MessageTopic(int topicId, MessageBlock block, long timeout) {
+        this.topicId = topicId;
+        this.block = block;
+        this.capacity = (block.getSize() - BUFFER_OFFSET) & ~(MessageRing.RECORD_ALIGNMENT - 1);
+        this.maxMessageLength = (int) Math.min(Integer.MAX_VALUE, (capacity >> 1) - MessageRing.RECORD_HEADER_LENGTH);
+        this.timeout = timeout;
+        if (capacity <= MessageRing.RECORD_HEADER_LENGTH << 1) {
+            throw new IllegalArgumentException("block too small");
+        }
+    }
+
+    public int getTopicId() {
+        return topicId;
+    }
+
+    public MessageBlock getBlock() {
+        return block;
+    }
+
+    public long getCapacity() {
+        return capacity;
+    }
+
+    public int getMaxMessageLength() {
+        return maxMessageLength;
+    }
+
+    public long getTail() {
+        return block.getLongVolatile(TAIL_OFFSET);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Stops the owning client from keeping the topic block alive, the block is reclaimed once
+     * no other client publishes to or polls it for longer than the timeout.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Appends one record visible to all current subscribers, publishers are serialized by a lock
+     * that is taken over when its holder stops refreshing the block timestamp.
+     */
+    public void publish(int clientId, int type, byte[] bytes, int index, int length) {
+        if (type == MessageRing.PADDING_TYPE) {
+            throw new IllegalArgumentException("reserved message type");
+        }
+        if (length < 0 || length > maxMessageLength || bytes.length - index < length) {
+            throw new IllegalArgumentException("message too long");
+        }
+        lock(clientId);
+        try {
+            int required = align(length + MessageRing.RECORD_HEADER_LENGTH);
+            long tail = block.getLong(TAIL_OFFSET);
+            long recordIndex = tail % capacity;
+            long toEnd = capacity - recordIndex;
+            if (required > toEnd) {
+                block.putLongVolatile(TAIL_INTENT_OFFSET, tail + toEnd + required);
+                block.putInt(BUFFER_OFFSET + recordIndex + 4, MessageRing.PADDING_TYPE);
+                block.putInt(BUFFER_OFFSET + recordIndex, (int) toEnd);
+                tail += toEnd;
+                recordIndex = 0;
+            } else {
+                block.putLongVolatile(TAIL_INTENT_OFFSET, tail + required);
+            }
+            block.putInt(BUFFER_OFFSET + recordIndex, length + MessageRing.RECORD_HEADER_LENGTH);
+            block.putInt(BUFFER_OFFSET + recordIndex + 4, type);
+            block.setBytes(BUFFER_OFFSET + recordIndex + MessageRing.RECORD_HEADER_LENGTH, bytes, index, length);
+            block.putLongVolatile(LATEST_OFFSET, tail);
+            block.putLongVolatile(TAIL_OFFSET, tail + required);
+        } finally {
+            unlock(clientId);
+        }
+    }
+
+    public Subscriber subscribe(int clientId) {
+        for (int i = 0; i < MAX_SUBSCRIBERS; i++) {
+            long slot = SUBSCRIBER_OFFSET + (long) i * SUBSCRIBER_LENGTH;
+            int prevId = block.getIntVolatile(slot);
+            long cur = System.currentTimeMillis();
+            if (prevId == 0 || Math.abs(cur - block.getLongVolatile(slot + 8)) > timeout) {
+                if (block.compareAndSwapInt(slot, prevId, clientId)) {
+                    Subscriber subscriber = new Subscriber(clientId, slot);
+                    subscriber.heartbeat();
+                    return subscriber;
+                }
+            }
+        }
+        throw new IllegalStateException("too many subscribers");
+    }
+
+    /**
+     * Ids of subscribers that stopped heartbeating or lag more than lagBytes behind the tail.
+     */
+    public List<Integer> getSlowSubscribers(long lagBytes) {
+        List<Integer> slow = new ArrayList<>();
+        long tail = getTail();
+        long cur = System.currentTimeMillis();
+        for (int i = 0; i < MAX_SUBSCRIBERS; i++) {
+            long slot = SUBSCRIBER_OFFSET + (long) i * SUBSCRIBER_LENGTH;
+            int id = block.getIntVolatile(slot);
+            if (id != 0 && (Math.abs(cur - block.getLongVolatile(slot + 8)) > timeout || tail - block.getLongVolatile(slot + 16) > lagBytes)) {
+                slow.add(id);
+            }
+        }
+        return slow;
+    }
+
+    /**
+     * The lock time is cleared before the lock is released, so a zero time means the holder has just
+     * acquired the lock and not written its time yet; contenders start the clock instead of taking over.
+     * A takeover swaps the stale time before the owner, so only one contender can act on it.
+     */
+    private void lock(int clientId) {
+        while (!block.compareAndSwapInt(LOCK_OFFSET, 0, clientId)) {
+            int holder = block.getIntVolatile(LOCK_OFFSET);
+            long prev = block.getLongVolatile(LOCK_TIME_OFFSET);
+            long cur = System.currentTimeMillis();
+            if (holder != 0) {
+                if (prev == 0) {
+                    block.compareAndSwapLong(LOCK_TIME_OFFSET, 0, cur);
+                } else if (Math.abs(cur - prev) > timeout && block.compareAndSwapLong(LOCK_TIME_OFFSET, prev, cur) && block.compareAndSwapInt(LOCK_OFFSET, holder, clientId)) {
+                    break;
+                }
+            }
+            Thread.yield();
+        }
+        block.putLongVolatile(LOCK_TIME_OFFSET, System.currentTimeMillis());
+        block.updateTimestamp();
+    }
+
+    private void unlock(int clientId) {
+        if (block.getIntVolatile(LOCK_OFFSET) == clientId) {
+            block.putLongVolatile(LOCK_TIME_OFFSET, 0);
+            block.compareAndSwapInt(LOCK_OFFSET, clientId, 0);
+        }
+    }
+
+    private boolean validate(long cursor) {
+        return cursor + capacity > block.getLongVolatile(TAIL_INTENT_OFFSET);
+    }
+
+    private static int align(int length) {
+        return (length + MessageRing.RECORD_ALIGNMENT - 1) & ~(MessageRing.RECORD_ALIGNMENT - 1);
+    }
+
+    public interface TopicHandler {
+
+        void onMessage(int type, ByteBuffer buffer);
+    }
+
+    /**
+     * Read side of a topic, owned by a single thread. Messages are copied out and validated
+     * before being handed over, so a concurrent overwrite is never observed.
+     */
+    public class Subscriber {
+
+        private final int clientId;
+        private final long slot;
+        private final byte[] scratch = new byte[maxMessageLength];
+        private final ByteBuffer scratchBuffer = ByteBuffer.wrap(scratch).order(ByteOrder.nativeOrder());
+        private long nextRecord;
+        private long lostCount;
+        private boolean closed;
+
+        private Subscriber(int clientId, long slot) {
+            this.clientId = clientId;
+            this.slot = slot;
+            this.nextRecord = getTail();
+        }
+
+        public int receive(TopicHandler handler, int limit) {
+            if (closed) {
+                throw new IllegalStateException();
+            }
+            int count = 0;
+            while (count < limit) {
+                long cursor = nextRecord;
+                if (block.getLongVolatile(TAIL_OFFSET) <= cursor) {
+                    break;
+                }
+                if (!validate(cursor)) {
+                    lostCount++;
+                    nextRecord = block.getLongVolatile(LATEST_OFFSET);
+                    continue;
+                }
+                long recordIndex = BUFFER_OFFSET + cursor % capacity;
+                int recordLength = block.getIntVolatile(recordIndex);
+                int type = block.getInt(recordIndex + 4);
+                int length = recordLength - MessageRing.RECORD_HEADER_LENGTH;
+                if (type == MessageRing.PADDING_TYPE) {
+                    length = 0;
+                } else if (length >= 0 && length <= maxMessageLength) {
+                    block.getBytes(recordIndex + MessageRing.RECORD_HEADER_LENGTH, scratch, 0, length);
+                }
+                // the copy above uses plain loads, keep them before the tail intent re-check
+                UNSAFE.loadFence();
+                if (!validate(cursor) || length < 0 || length > maxMessageLength) {
+                    lostCount++;
+                    nextRecord = block.getLongVolatile(LATEST_OFFSET);
+                    continue;
+                }
+                nextRecord = cursor + align(recordLength);
+                if (type != MessageRing.PADDING_TYPE) {
+                    count++;
+                    scratchBuffer.clear();
+                    scratchBuffer.order(ByteOrder.nativeOrder()).limit(length);
+                    handler.onMessage(type, scratchBuffer);
+                }
+            }
+            heartbeat();
+            return count;
+        }
+
+        public long getLag() {
+            return getTail() - nextRecord;
+        }
+
+        /**
+         * Number of times this subscriber was lapped by the publisher and skipped records.
+         */
+        public long getLostCount() {
+            return lostCount;
+        }
+
+        public void close() {
+            if (!closed) {
+                closed = true;
+                block.compareAndSwapInt(slot, clientId, 0);
+            }
+        }
+
+        private void heartbeat() {
+            block.putLong(slot + 16, nextRecord);
+            block.putLongVolatile(slot + 8, System.currentTimeMillis());
+            block.updateTimestamp();
+        }
+    }
+}
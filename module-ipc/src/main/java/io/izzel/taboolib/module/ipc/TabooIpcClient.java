@@ -1,5 +1,9 @@
 package io.izzel.taboolib.module.ipc;
 
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.function.Consumer;
+
 public interface TabooIpcClient {
 
     boolean connect(TabooIpcConfig config) throws Exception;
@@ -12,8 +16,48 @@ public interface TabooIpcClient {
         return sendMessage(bytes, 0, bytes.length, target);
     }
 
+    boolean sendMessage(ByteBuffer buffer, MessageBlock target);
+
+    boolean tryClaim(int length, MessageBlock target, MessageClaim claim);
+
+    default boolean sendMessages(byte[][] messages, MessageBlock target) {
+        return target.getRing().writeBatch(0, messages);
+    }
+
     boolean readMessage(byte[] buf);
 
+    boolean readMessage(Consumer<ByteBuffer> consumer);
+
+    int readMessages(MessageRing.MessageHandler handler, int limit);
+
+    void addHandler(MessageRing.MessageHandler handler);
+
+    void removeHandler(MessageRing.MessageHandler handler);
+
+    default boolean sendMessage(byte[] bytes, int clientId) throws Exception {
+        MessageBlock target = getPeer(clientId);
+        return target != null && sendMessage(bytes, 0, bytes.length, target);
+    }
+
+    /**
+     * Block of a connected client looked up through the directory, null when it is not connected.
+     */
+    MessageBlock getPeer(int clientId) throws Exception;
+
+    /**
+     * Live clients and the global offsets of their blocks.
+     */
+    Map<Integer, Long> getPeers() throws Exception;
+
+    /**
+     * Opens the broadcast topic with the given positive id, creating it on first use.
+     */
+    MessageTopic openTopic(int topicId) throws Exception;
+
+    default void publish(MessageTopic topic, byte[] bytes) {
+        topic.publish(getId(), 0, bytes, 0, bytes.length);
+    }
+
     int getId();
 
 }
@@ -1,14 +1,23 @@
 package io.izzel.taboolib.module.ipc;
 
-import java.io.RandomAccessFile;
-import java.nio.channels.FileChannel;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 public class TabooIpcClientImpl implements TabooIpcClient {
 
     private volatile boolean available = false;
-    private MemoryMappedFile file;
+    private MemorySegments segments;
     private int id;
     private MessageBlock block;
+    private long blockSize;
+    private long blockOffset;
+    private TabooIpcConfig config;
+    private volatile MessageDispatcher dispatcher;
+    private ClientDirectory directory;
+    private ClientHeartbeat heartbeat;
+    private final Map<Integer, MessageBlock> peers = new ConcurrentHashMap<>();
 
     @Override
     public synchronized boolean connect(TabooIpcConfig config) throws Exception {
@@ -18,45 +27,152 @@ public class TabooIpcClientImpl implements TabooIpcClient {
         long size = round(config.memorySize());
         long blockSize = round(config.blockSize());
         if (blockSize < 128 || size < (blockSize << 1) || size % blockSize != 0) return false;
-        try (RandomAccessFile raf = new RandomAccessFile(config.fileLocation(), "rw")) {
-            raf.setLength(size);
-            try (FileChannel channel = raf.getChannel()) {
-                this.file = new MemoryMappedFile(channel, size);
-                this.id = file.getAndAddInt(0, 1);
-                if (!login(size, blockSize, config.timeout())) {
-                    this.file.unmap();
-                    return available = false;
-                }
-                return available = true;
-            }
+        this.segments = new MemorySegments(config.fileLocation(), config.mappingBackend(), size, config.maxSegments());
+        this.segments.open();
+        this.id = segments.getHeader().addAndGetInt(0, 1);
+        this.blockSize = blockSize;
+        if (!login(blockSize, config.timeout())) {
+            this.segments.close();
+            return available = false;
         }
+        this.directory = new ClientDirectory(segments, blockSize, config.timeout());
+        if (!directory.register(id, blockOffset)) {
+            this.block.putLongVolatile(4, 0);
+            this.segments.close();
+            return available = false;
+        }
+        this.config = config;
+        this.heartbeat = new ClientHeartbeat(block, directory, config.heartbeatInterval());
+        this.heartbeat.start(id);
+        return available = true;
     }
 
     @Override
     public synchronized void disconnect() throws Exception {
         if (!available) throw new IllegalStateException();
-        if (file != null) file.unmap();
+        // the dispatcher would unmap the segments while it is still reading from them
+        if (dispatcher != null && dispatcher.isDispatcherThread())
+            throw new IllegalStateException("cannot disconnect from a message handler");
+        if (dispatcher != null) {
+            dispatcher.stop();
+            dispatcher = null;
+        }
+        heartbeat.stop();
+        heartbeat = null;
         available = false;
+        directory.unregister(id);
+        block.putLongVolatile(4, 0);
+        peers.clear();
+        if (segments != null) segments.close();
+    }
+
+    public MemorySegments getSegments() {
+        return segments;
     }
 
     @Override
     public boolean sendMessage(byte[] bytes, int index, int length, MessageBlock target) {
         if (!available) throw new IllegalStateException();
-        if (bytes.length < length || target.getPayloadSize() < length)
+        if (bytes.length - index < length || target.getRing().getMaxMessageLength() < length)
+            throw new IllegalArgumentException("message too long");
+        return target.getRing().write(0, bytes, index, length);
+    }
+
+    @Override
+    public boolean sendMessage(ByteBuffer buffer, MessageBlock target) {
+        if (!available) throw new IllegalStateException();
+        if (target.getRing().getMaxMessageLength() < buffer.remaining())
+            throw new IllegalArgumentException("message too long");
+        return target.getRing().write(0, buffer);
+    }
+
+    @Override
+    public boolean tryClaim(int length, MessageBlock target, MessageClaim claim) {
+        if (!available) throw new IllegalStateException();
+        if (target.getRing().getMaxMessageLength() < length)
             throw new IllegalArgumentException("message too long");
-        if (target.compareAndSwapInt(16, 0, 1)) {
-            target.setBytes(64, bytes, index, length);
-            return target.compareAndSwapInt(16, 1, 2);
-        } else return false;
+        return target.getRing().tryClaim(0, length, claim);
+    }
+
+    @Override
+    public boolean sendMessages(byte[][] messages, MessageBlock target) {
+        if (!available) throw new IllegalStateException();
+        return target.getRing().writeBatch(0, messages);
     }
 
     @Override
     public boolean readMessage(byte[] buf) {
+        checkConsumer();
+        return this.block.getRing().read((type, block, offset, length) -> block.getBytes(offset, buf, 0, Math.min(length, buf.length)), 1) > 0;
+    }
+
+    @Override
+    public boolean readMessage(Consumer<ByteBuffer> consumer) {
+        checkConsumer();
+        return this.block.getRing().read(consumer, 1) > 0;
+    }
+
+    @Override
+    public int readMessages(MessageRing.MessageHandler handler, int limit) {
+        checkConsumer();
+        return this.block.getRing().read(handler, limit);
+    }
+
+    @Override
+    public synchronized void addHandler(MessageRing.MessageHandler handler) {
         if (!available) throw new IllegalStateException();
-        if (this.block.getInt(16) == 2) {
-            this.block.getBytes(64, buf, 0, Math.min((int) this.block.getPayloadSize(), buf.length));
-            return this.block.compareAndSwapInt(16, 2, 0);
-        } else return false;
+        if (dispatcher == null) {
+            dispatcher = new MessageDispatcher(this, config.idleStrategy(), config.dispatchBatchLimit());
+            dispatcher.start();
+        }
+        dispatcher.addHandler(handler);
+    }
+
+    @Override
+    public synchronized void removeHandler(MessageRing.MessageHandler handler) {
+        if (dispatcher != null) {
+            dispatcher.removeHandler(handler);
+        }
+    }
+
+    @Override
+    public MessageBlock getPeer(int clientId) throws Exception {
+        if (!available) throw new IllegalStateException();
+        MessageBlock peer = peers.get(clientId);
+        if (peer != null && peer.getIntVolatile(0) == clientId) {
+            return peer;
+        }
+        long offset = directory.lookup(clientId);
+        if (offset < 0) {
+            peers.remove(clientId);
+            return null;
+        }
+        peer = segments.getBlock(offset, blockSize);
+        peers.put(clientId, peer);
+        return peer;
+    }
+
+    @Override
+    public Map<Integer, Long> getPeers() throws Exception {
+        if (!available) throw new IllegalStateException();
+        return directory.getPeers();
+    }
+
+    @Override
+    public synchronized MessageTopic openTopic(int topicId) throws Exception {
+        if (!available) throw new IllegalStateException();
+        if (topicId <= 0) throw new IllegalArgumentException("topic id must be positive");
+        MemoryMappedFile header = segments.getHeader();
+        for (int i = 0; i < MessageTopic.MAX_TOPICS; i++) {
+            long entry = MessageTopic.TOPIC_TABLE_OFFSET + (long) i * MessageTopic.TOPIC_ENTRY_LENGTH;
+            header.compareAndSwapInt(entry, 0, topicId);
+            if (header.getIntVolatile(entry) == topicId) {
+                MessageTopic topic = awaitTopic(header, entry, topicId);
+                heartbeat.addTopic(topic);
+                return topic;
+            }
+        }
+        throw new IllegalStateException("too many topics");
     }
 
     @Override
@@ -65,22 +181,88 @@ public class TabooIpcClientImpl implements TabooIpcClient {
         return id;
     }
 
-    private boolean login(long size, long blockSize, long timeout) {
-        long offset = blockSize;
-        while (offset < size) {
-            int prevId = file.getInt(offset);
-            long cur = System.currentTimeMillis();
-            long prev = file.getAndSetLong(offset + 4, cur);
-            if (Math.abs(prev - cur) > timeout) {
-                if (file.compareAndSwapInt(offset, prevId, id)) {
-                    this.block = new MessageBlock(file, offset, blockSize);
-                    this.block.reset();
-                    return true;
+    /**
+     * The ring has a single consumer, direct reads are not allowed while the dispatcher drains it.
+     */
+    private void checkConsumer() {
+        if (!available) throw new IllegalStateException();
+        MessageDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null && !dispatcher.isDispatcherThread())
+            throw new IllegalStateException("messages are consumed by the dispatcher");
+    }
+
+    private boolean login(long blockSize, long timeout) throws Exception {
+        long offset = claimBlock(id, blockSize, timeout);
+        if (offset < 0) {
+            return false;
+        }
+        this.block = segments.getBlock(offset, blockSize);
+        this.blockOffset = offset;
+        return true;
+    }
+
+    /**
+     * Entry state: 0 empty, 1 ready, 2 being allocated. The topic block is owned by -topicId,
+     * a ready entry whose block was reclaimed is reset and allocated again.
+     */
+    private MessageTopic awaitTopic(MemoryMappedFile header, long entry, int topicId) throws Exception {
+        long deadline = System.currentTimeMillis() + config.timeout();
+        while (true) {
+            int state = header.getIntVolatile(entry + 4);
+            if (state == 1) {
+                MessageBlock topicBlock = segments.getBlock(header.getLongVolatile(entry + 8), blockSize);
+                if (topicBlock.getIntVolatile(0) == -topicId) {
+                    return new MessageTopic(topicId, topicBlock, config.timeout());
                 }
+                header.compareAndSwapInt(entry + 4, 1, 0);
+            } else if (state == 0) {
+                if (header.compareAndSwapInt(entry + 4, 0, 2)) {
+                    long offset = claimBlock(-topicId, blockSize, config.timeout());
+                    if (offset < 0) {
+                        header.compareAndSwapInt(entry + 4, 2, 0);
+                        throw new IllegalStateException("no free block for topic " + topicId);
+                    }
+                    header.putLongVolatile(entry + 8, offset);
+                    header.putIntVolatile(entry + 4, 1);
+                    return new MessageTopic(topicId, segments.getBlock(offset, blockSize), config.timeout());
+                }
+            } else if (System.currentTimeMillis() > deadline) {
+                header.compareAndSwapInt(entry + 4, state, 0);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Takes over the first block whose timestamp is older than timeout, growing the file when none is left.
+     * Returns the global offset of the block or -1.
+     */
+    private long claimBlock(int ownerId, long blockSize, long timeout) throws Exception {
+        int count = 0;
+        while (count < segments.getMaxSegments()) {
+            int segmentCount = segments.getSegmentCount();
+            for (; count < segmentCount; count++) {
+                MemoryMappedFile file = segments.getSegment(count);
+                long offset = count == 0 ? blockSize : 0;
+                while (offset < file.getSize()) {
+                    int prevId = file.getInt(offset);
+                    long cur = System.currentTimeMillis();
+                    long prev = file.getAndSetLong(offset + 4, cur);
+                    if (Math.abs(prev - cur) > timeout) {
+                        if (file.compareAndSwapInt(offset, prevId, ownerId)) {
+                            new MessageBlock(file, offset, blockSize).reset();
+                            return count * segments.getSegmentSize() + offset;
+                        }
+                    }
+                    offset += blockSize;
+                }
+            }
+            if (!segments.grow(segmentCount)) {
+                return -1;
             }
-            offset += blockSize;
         }
-        return false;
+        return -1;
     }
 
     private static long round(long i) {
@@ -1,5 +1,7 @@
 package io.izzel.taboolib.module.ipc;
 
+import java.util.concurrent.TimeUnit;
+
 public interface TabooIpcConfig {
 
     default long memorySize() {
@@ -10,13 +12,39 @@ public interface TabooIpcConfig {
         return 1 << 14;
     }
 
+    /**
+     * Upper bound of segments, each one memorySize() large, the shared file may grow to.
+     */
+    default int maxSegments() {
+        return 4;
+    }
+
+    default MappingBackend mappingBackend() {
+        return MappingBackend.getDefault();
+    }
+
     default long period() {
         return 10;
     }
 
+    default IdleStrategy idleStrategy() {
+        return IdleStrategy.backoff(TimeUnit.MILLISECONDS.toNanos(period()));
+    }
+
+    default int dispatchBatchLimit() {
+        return 64;
+    }
+
     default long timeout() {
         return 60 * 1000;
     }
 
+    /**
+     * Interval in milliseconds between two heartbeats, must stay well below timeout().
+     */
+    default long heartbeatInterval() {
+        return timeout() / 4;
+    }
+
     String fileLocation();
 }
@@ -3,6 +3,8 @@ package io.izzel.taboolib.util;
 import sun.misc.Unsafe;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.security.ProtectionDomain;
 
 public class UNSAFE {
@@ -478,6 +480,32 @@ public class UNSAFE {
         return unsafe.getAndSetObject(o, offset, newValue);
     }
 
+    /**
+     * Unsafe.invokeCleaner on Java 9 and later, DirectBuffer.cleaner().clean() on Java 8.
+     */
+    public static void invokeCleaner(ByteBuffer directBuffer) {
+        if (!directBuffer.isDirect()) {
+            throw new IllegalArgumentException("buffer is non-direct");
+        }
+        try {
+            Method invokeCleaner = Unsafe.class.getMethod("invokeCleaner", ByteBuffer.class);
+            invokeCleaner.invoke(unsafe, directBuffer);
+        } catch (NoSuchMethodException e) {
+            try {
+                Method cleaner = directBuffer.getClass().getMethod("cleaner");
+                cleaner.setAccessible(true);
+                Object c = cleaner.invoke(directBuffer);
+                if (c != null) {
+                    c.getClass().getMethod("clean").invoke(c);
+                }
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     public static void loadFence() {
         unsafe.loadFence();
     }
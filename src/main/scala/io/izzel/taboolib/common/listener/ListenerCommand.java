@@ -9,6 +9,8 @@ import io.izzel.taboolib.module.ai.SimpleAiSelector;
 import io.izzel.taboolib.module.command.lite.CommandBuilder;
 import io.izzel.taboolib.module.db.local.Local;
 import io.izzel.taboolib.module.db.local.LocalPlayer;
+import io.izzel.taboolib.module.db.source.DBSource;
+import io.izzel.taboolib.module.db.source.DBSourceMetrics;
 import io.izzel.taboolib.module.hologram.Hologram;
 import io.izzel.taboolib.module.hologram.THologram;
 import io.izzel.taboolib.module.inject.TListener;
@@ -16,6 +18,7 @@ import io.izzel.taboolib.module.light.TLight;
 import io.izzel.taboolib.module.lite.SimpleReflection;
 import io.izzel.taboolib.module.locale.logger.TLogger;
 import io.izzel.taboolib.module.nms.impl.Type;
+import io.izzel.taboolib.module.profiler.HandlerProfiler;
 import io.izzel.taboolib.module.tellraw.TellrawJson;
 import io.izzel.taboolib.util.Files;
 import io.izzel.taboolib.util.book.BookFormatter;
@@ -38,9 +41,11 @@ import org.bukkit.util.Vector;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @author sky
@@ -355,6 +360,69 @@ public class ListenerCommand implements Listener {
                         sender.sendMessage("§8[§fTabooLib§8] §7Test: §f" + testUtil.stream().map(i -> i.name()[0]).collect(Collectors.joining(", ")));
                     }
                 }).build();
+        // 数据库统计
+        CommandBuilder.create("taboolibdb", TabooLib.getPlugin())
+                .permission("*")
+                .aliases("libdb")
+                .tab((sender, args) -> Stream.of("queries", "slow", "reset").filter(name -> name.startsWith(args[0].toLowerCase())).collect(Collectors.toList()))
+                .execute((sender, args) -> {
+                    String type = args.length == 0 ? "pool" : args[0].toLowerCase();
+                    DBSource.getDataSource().forEach((host, data) -> {
+                        DBSourceMetrics metrics = data.getMetrics();
+                        sender.sendMessage("§8[§fTabooLib§8] §f" + host.getConnectionUrlSimple() + " §8(" + host.getPlugin().getName() + ")");
+                        switch (type) {
+                            case "queries":
+                                metrics.getQueries().entrySet().stream()
+                                        .sorted(Comparator.comparingDouble(entry -> -entry.getValue().getLatency().getMeanMillis() * entry.getValue().getLatency().getCount()))
+                                        .limit(10)
+                                        .forEach(entry -> sender.sendMessage("§8 - §7" + entry.getKey() + " §8| §f" + entry.getValue().getLatency() + ", errors=" + entry.getValue().getErrors() + ", slow=" + entry.getValue().getSlow()));
+                                break;
+                            case "slow":
+                                metrics.getSlowQueries().forEach(query -> sender.sendMessage("§8 - §7" + query));
+                                break;
+                            case "reset":
+                                metrics.reset();
+                                sender.sendMessage("§8 - §7Reset.");
+                                break;
+                            default:
+                                sender.sendMessage("§8 - §7Connections: §factive=" + metrics.getActiveConnections() + ", idle=" + metrics.getIdleConnections() + ", pending=" + metrics.getPendingThreads() + ", total=" + metrics.getTotalConnections() + "/" + metrics.getMaxConnections() + ", timeouts=" + metrics.getTimeouts());
+                                sender.sendMessage("§8 - §7Acquire: §f" + metrics.getAcquire());
+                                sender.sendMessage("§8 - §7Usage: §f" + metrics.getUsage());
+                                break;
+                        }
+                    });
+                }).build();
+        // 监听器耗时统计
+        CommandBuilder.create("taboolibprofiler", TabooLib.getPlugin())
+                .permission("*")
+                .aliases("libprofiler")
+                .tab((sender, args) -> Stream.of("top", "on", "off", "reset", "dump").filter(name -> name.startsWith(args[0].toLowerCase())).collect(Collectors.toList()))
+                .execute((sender, args) -> {
+                    String type = args.length == 0 ? "top" : args[0].toLowerCase();
+                    switch (type) {
+                        case "on":
+                            HandlerProfiler.setEnabled(true);
+                            sender.sendMessage("§8[§fTabooLib§8] §7Profiler enabled. §8(event handlers are only profiled when PROFILER is enabled on startup)");
+                            break;
+                        case "off":
+                            HandlerProfiler.setEnabled(false);
+                            sender.sendMessage("§8[§fTabooLib§8] §7Profiler disabled.");
+                            break;
+                        case "reset":
+                            HandlerProfiler.reset();
+                            sender.sendMessage("§8[§fTabooLib§8] §7Reset.");
+                            break;
+                        case "dump":
+                            File file = Files.file(TabooLib.getPlugin().getDataFolder(), "profiler/" + System.currentTimeMillis() + ".json");
+                            Files.toFile(HandlerProfiler.toJson(), file);
+                            sender.sendMessage("§8[§fTabooLib§8] §7Saved to §f" + file.getPath());
+                            break;
+                        default:
+                            sender.sendMessage("§8[§fTabooLib§8] §7Profiler: §f" + (HandlerProfiler.isEnabled() ? "enabled" : "disabled"));
+                            HandlerProfiler.getTop(args.length > 1 ? NumberConversions.toInt(args[1]) : 10).forEach(stats -> sender.sendMessage("§8 - §7[" + stats.getType() + "] " + stats.getPlugin() + " " + stats.getName() + " §8| §f" + stats));
+                            break;
+                    }
+                }).build();
     }
 
     @EventHandler(priority = EventPriority.LOWEST)
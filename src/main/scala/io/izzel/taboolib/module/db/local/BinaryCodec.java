@@ -0,0 +1,234 @@
+package io.izzel.taboolib.module.db.local;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 二进制编码
+ * 按节点类型写入标记与值，读取时不经过 SnakeYAML
+ * 可序列化对象（ConfigurationSerializable）与 YAML 相同，以 "==" 记录类型后写入 serialize() 的结果
+ * 遇到无法编码的类型时抛出 UnsupportedOperationException，由 {@link DataCodecs} 改用 YAML 编码
+ *
+ * @Since 2026-10-18 18:20
+ */
+public class BinaryCodec implements DataCodec {
+
+    private static final int NULL = 0;
+    private static final int STRING = 1;
+    private static final int INT = 2;
+    private static final int LONG = 3;
+    private static final int DOUBLE = 4;
+    private static final int FLOAT = 5;
+    private static final int BOOLEAN = 6;
+    private static final int SHORT = 7;
+    private static final int BYTE = 8;
+    private static final int LIST = 9;
+    private static final int MAP = 10;
+    private static final int OBJECT = 11;
+
+    @Override
+    public int getId() {
+        return 2;
+    }
+
+    @Override
+    public String getName() {
+        return "BINARY";
+    }
+
+    @Override
+    public byte[] encode(FileConfiguration data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeMap(out, data.getValues(false));
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public SecuredFile decode(byte[] data, int offset, int length) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, offset, length));
+        SecuredFile file = new SecuredFile();
+        if (in.readByte() != MAP) {
+            throw new IOException("invalid data");
+        }
+        readSection(in, file);
+        file.markSaved();
+        return file;
+    }
+
+    private void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeInt((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFloat((Float) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeShort((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(LIST);
+            writeVarInt(out, list.size());
+            for (Object element : list) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof ConfigurationSection) {
+            writeMap(out, ((ConfigurationSection) value).getValues(false));
+        } else if (value instanceof Map) {
+            writeMap(out, (Map<?, ?>) value);
+        } else if (value instanceof ConfigurationSerializable) {
+            out.writeByte(OBJECT);
+            writeString(out, ConfigurationSerialization.getAlias(((ConfigurationSerializable) value).getClass()));
+            writeMap(out, ((ConfigurationSerializable) value).serialize());
+        } else {
+            throw new UnsupportedOperationException("unsupported type: " + value.getClass().getName());
+        }
+    }
+
+    private void writeMap(DataOutputStream out, Map<?, ?> map) throws IOException {
+        out.writeByte(MAP);
+        writeVarInt(out, map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!(entry.getKey() instanceof String)) {
+                throw new UnsupportedOperationException("unsupported key: " + entry.getKey());
+            }
+            writeString(out, (String) entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    /**
+     * 节点下的 Map 与 YAML 读取时的行为一致，转换为子节点
+     */
+    private void readSection(DataInputStream in, ConfigurationSection section) throws IOException {
+        int size = readVarInt(in);
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            int type = in.readByte();
+            if (type == MAP) {
+                readSection(in, section.createSection(key));
+            } else {
+                section.set(key, readValue(in, type));
+            }
+        }
+    }
+
+    private Object readValue(DataInputStream in, int type) throws IOException {
+        switch (type) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case INT:
+                return in.readInt();
+            case LONG:
+                return in.readLong();
+            case DOUBLE:
+                return in.readDouble();
+            case FLOAT:
+                return in.readFloat();
+            case BOOLEAN:
+                return in.readBoolean();
+            case SHORT:
+                return in.readShort();
+            case BYTE:
+                return in.readByte();
+            case LIST: {
+                int size = readVarInt(in);
+                List<Object> list = Lists.newArrayListWithCapacity(size);
+                for (int i = 0; i < size; i++) {
+                    list.add(readValue(in, in.readByte()));
+                }
+                return list;
+            }
+            case MAP:
+                return readMap(in);
+            case OBJECT: {
+                String alias = readString(in);
+                if (in.readByte() != MAP) {
+                    throw new IOException("invalid data");
+                }
+                Map<String, Object> map = Maps.newLinkedHashMap();
+                map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, alias);
+                map.putAll(readMap(in));
+                return ConfigurationSerialization.deserializeObject(map);
+            }
+            default:
+                throw new IOException("invalid type: " + type);
+        }
+    }
+
+    private Map<String, Object> readMap(DataInputStream in) throws IOException {
+        int size = readVarInt(in);
+        Map<String, Object> map = Maps.newLinkedHashMap();
+        for (int i = 0; i < size; i++) {
+            String key = readString(in);
+            map.put(key, readValue(in, in.readByte()));
+        }
+        return map;
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint too long");
+    }
+}
@@ -0,0 +1,25 @@
+package io.izzel.taboolib.module.db.local;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.IOException;
+
+/**
+ * 玩家数据的编码格式，通过 {@link DataCodecs#register(DataCodec)} 注册
+ *
+ * @Since 2026-10-18 18:20
+ */
+public interface DataCodec {
+
+    /**
+     * 写入数据头部的编号（1 ~ 127）
+     */
+    int getId();
+
+    String getName();
+
+    byte[] encode(FileConfiguration data) throws IOException;
+
+    SecuredFile decode(byte[] data, int offset, int length) throws IOException;
+
+}
@@ -0,0 +1,125 @@
+package io.izzel.taboolib.module.db.local;
+
+import com.google.common.collect.Maps;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 数据格式：[1 byte 头部][内容]
+ * 头部低 7 位为编码编号，最高位表示内容经过 Deflate 压缩，压缩后体积没有减小时保存原文
+ *
+ * @Since 2026-10-18 18:20
+ */
+public class DataCodecs {
+
+    public static final DataCodec YAML = new YamlCodec();
+    public static final DataCodec BINARY = new BinaryCodec();
+
+    private static final int COMPRESSED = 0x80;
+    private static final Map<Integer, DataCodec> codecs = Maps.newConcurrentMap();
+
+    static {
+        register(YAML);
+        register(BINARY);
+    }
+
+    public static void register(DataCodec codec) {
+        if (codec.getId() < 1 || codec.getId() > 127) {
+            throw new IllegalArgumentException("invalid codec id: " + codec.getId());
+        }
+        codecs.put(codec.getId(), codec);
+    }
+
+    public static DataCodec getCodec(String name) {
+        return codecs.values().stream().filter(codec -> codec.getName().equalsIgnoreCase(name)).findFirst().orElse(BINARY);
+    }
+
+    public static byte[] encode(FileConfiguration data, DataCodec codec, boolean compress) {
+        byte[] content;
+        try {
+            try {
+                content = codec.encode(data);
+            } catch (UnsupportedOperationException e) {
+                codec = YAML;
+                content = codec.encode(data);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (compress) {
+            byte[] compressed = deflate(content);
+            if (compressed.length < content.length + 1) {
+                compressed[0] = (byte) (codec.getId() | COMPRESSED);
+                return compressed;
+            }
+        }
+        byte[] bytes = new byte[content.length + 1];
+        bytes[0] = (byte) codec.getId();
+        System.arraycopy(content, 0, bytes, 1, content.length);
+        return bytes;
+    }
+
+    public static SecuredFile decode(byte[] data) throws IOException {
+        if (data.length == 0) {
+            return new SecuredFile();
+        }
+        int header = data[0] & 0xFF;
+        DataCodec codec = codecs.get(header & ~COMPRESSED);
+        if (codec == null) {
+            throw new IOException("unknown codec: " + (header & ~COMPRESSED));
+        }
+        if ((header & COMPRESSED) != 0) {
+            byte[] content = inflate(data);
+            return codec.decode(content, 0, content.length);
+        }
+        return codec.decode(data, 1, data.length - 1);
+    }
+
+    /**
+     * 压缩结果的第一个字节预留给头部
+     */
+    private static byte[] deflate(byte[] content) {
+        Deflater deflater = new Deflater();
+        try {
+            deflater.setInput(content);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2 + 16);
+            out.write(0);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] data) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, 1, data.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("truncated data");
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -1,10 +1,12 @@
 package io.izzel.taboolib.module.db.local;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import io.izzel.taboolib.TabooLib;
 import io.izzel.taboolib.common.loader.Startup;
 import io.izzel.taboolib.module.db.IHost;
 import io.izzel.taboolib.module.db.source.DBSource;
+import io.izzel.taboolib.module.db.sql.SQLBatchWriter;
 import io.izzel.taboolib.module.db.sql.SQLTable;
 import io.izzel.taboolib.module.db.sql.query.Where;
 import io.izzel.taboolib.module.db.sqlite.SQLiteHost;
@@ -16,12 +18,18 @@ import org.bukkit.configuration.file.FileConfiguration;
 
 import javax.sql.DataSource;
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @Author 坏黑
@@ -29,36 +37,35 @@ import java.util.concurrent.Executors;
  */
 public class LocalPlayer {
 
-    private static final Map<String, FileConfiguration> files = Maps.newConcurrentMap();
+    private static final LocalPlayerCache files = new LocalPlayerCache();
+    private static final AtomicBoolean evicting = new AtomicBoolean();
+    private static final Map<String, CompletableFuture<FileConfiguration>> loading = Maps.newConcurrentMap();
+    private static final Set<String> legacy = Sets.newConcurrentHashSet();
     private static final ExecutorService executor = Executors.newSingleThreadExecutor();
     private static IHost host;
     private static SQLTable table;
+    private static SQLTable tableBlob;
     private static DataSource dataSource;
+    private static SQLBatchWriter writer;
 
     @Startup.Starting
     public static void init() {
         host = new SQLiteHost(Files.file(LocalPlayer.getFolder(), "v2/data.db"), TabooLib.getPlugin());
         table = new SQLTable("player_data");
+        tableBlob = new SQLTable("player_blob");
         try {
             dataSource = DBSource.create(host);
             table.executeUpdate("create table if not exists player_data (name text primary key, data text)").dataSource(dataSource).run();
+            tableBlob.executeUpdate("create table if not exists player_blob (name text primary key, data blob)").dataSource(dataSource).run();
+            writer = tableBlob.batch(dataSource).batchSize(500);
         } catch (Throwable t) {
             t.printStackTrace();
         }
     }
 
     public static FileConfiguration get0(OfflinePlayer player) {
-        File file = toFile(toName(player));
-        if (file.exists()) {
-            try {
-                return SecuredFile.loadConfiguration(file);
-            } finally {
-                Files.copy(file, Files.file(getFolder(), toName(player) + ".bak"));
-                Files.deepDelete(file);
-            }
-        }
         try {
-            return executor.submit(() -> table.select(Where.equals("name", LocalPlayer.toName(player))).to(dataSource).resultNext(r -> SecuredFile.loadConfiguration(new String(Base64.getDecoder().decode(r.getString("data")), StandardCharsets.UTF_8))).run(new SecuredFile(), SecuredFile.class)).get();
+            return executor.submit(() -> load(toName(player))).get();
         } catch (Throwable t) {
             t.printStackTrace();
         }
@@ -66,28 +73,156 @@ public class LocalPlayer {
     }
 
     public static void set0(OfflinePlayer player, FileConfiguration data) {
-        executor.submit(() -> {
-            if (table.select(Where.equals("name", LocalPlayer.toName(player))).find(dataSource)) {
-                table.update(Where.equals("name", LocalPlayer.toName(player))).set("data", Base64.getEncoder().encodeToString(data.saveToString().getBytes(StandardCharsets.UTF_8))).run(dataSource);
-            } else {
-                table.insert(LocalPlayer.toName(player), Base64.getEncoder().encodeToString(data.saveToString().getBytes(StandardCharsets.UTF_8))).run(dataSource);
+        save(toName(player), data);
+    }
+
+    private static CompletableFuture<Void> save(String name, FileConfiguration data) {
+        byte[] content;
+        // 序列化与重置变动状态需要在同一个锁内完成，避免遗漏期间的写入
+        synchronized (data) {
+            content = DataCodecs.encode(data, DataCodecs.getCodec(TabooLib.getConfig().getString("LOCAL-PLAYER-CODEC", "BINARY")), TabooLib.getConfig().getBoolean("LOCAL-PLAYER-COMPRESS", true));
+            if (data instanceof SecuredFile) {
+                ((SecuredFile) data).markSaved();
+            }
+        }
+        CompletableFuture<Void> future = writer.add(tableBlob.upsert("name").row("name", "data").value(name, content)).exceptionally(t -> {
+            if (data instanceof SecuredFile) {
+                ((SecuredFile) data).markChanged();
             }
+            return null;
         });
+        if (legacy.remove(name)) {
+            writer.add(table.delete(Where.equals("name", name)));
+        }
+        return future;
     }
 
+    /**
+     * 通过 set 写入或取出 List、Map 的数据会在下次保存时写入
+     * 直接修改其他取出的可变对象后需要调用 {@link SecuredFile#markChanged()}，否则该修改可能不会被保存
+     */
     public static FileConfiguration get(OfflinePlayer player) {
-        return files.computeIfAbsent(toName(player), n -> get0(player));
+        String name = toName(player);
+        try {
+            return getAsync(name).get();
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+        SecuredFile conf = new SecuredFile();
+        FileConfiguration exists = files.putIfAbsent(name, conf);
+        return exists != null ? exists : conf;
+    }
+
+    public static CompletableFuture<FileConfiguration> getAsync(OfflinePlayer player) {
+        return getAsync(toName(player));
+    }
+
+    /**
+     * 异步读取并缓存玩家数据，同一玩家同时进行的读取会被合并
+     */
+    public static CompletableFuture<FileConfiguration> getAsync(String name) {
+        FileConfiguration file = files.get(name);
+        if (file != null) {
+            return CompletableFuture.completedFuture(file);
+        }
+        // 不在 computeIfAbsent 中创建读取任务，读取可能在回调注册前完成并修改同一个 Map
+        CompletableFuture<FileConfiguration> future = new CompletableFuture<>();
+        CompletableFuture<FileConfiguration> exists = loading.putIfAbsent(name, future);
+        if (exists != null) {
+            return exists;
+        }
+        CompletableFuture.supplyAsync(() -> load(name), executor).handle((conf, t) -> {
+            if (t != null) {
+                t.printStackTrace();
+                conf = new SecuredFile();
+            }
+            FileConfiguration cached = files.putIfAbsent(name, conf);
+            if (files.size() > getCacheSize()) {
+                executor.execute(LocalPlayer::evictFiles);
+            }
+            return cached != null ? cached : conf;
+        }).whenComplete((conf, t) -> {
+            loading.remove(name, future);
+            if (t != null) {
+                future.completeExceptionally(t);
+            } else {
+                future.complete(conf);
+            }
+        });
+        return future;
+    }
+
+    private static FileConfiguration load(String name) {
+        File file = toFile(name);
+        if (file.exists()) {
+            try {
+                // 迁移的数据需要在下次保存时写入
+                SecuredFile conf = SecuredFile.loadConfiguration(file);
+                conf.markChanged();
+                return conf;
+            } finally {
+                Files.copy(file, Files.file(getFolder(), name + ".bak"));
+                Files.deepDelete(file);
+            }
+        }
+        // 等待尚未提交的写入，避免读取到旧数据
+        writer.flush().join();
+        byte[] data = tableBlob.select(Where.equals("name", name)).to(dataSource).resultNext(r -> r.getBytes("data")).run(null, byte[].class);
+        if (data != null) {
+            try {
+                return DataCodecs.decode(data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        // 旧版本（Base64 YAML）数据，在下次保存时迁移
+        SecuredFile conf = table.select(Where.equals("name", name)).to(dataSource).resultNext(r -> SecuredFile.loadConfiguration(new String(Base64.getDecoder().decode(r.getString("data")), StandardCharsets.UTF_8))).run(null, SecuredFile.class);
+        if (conf != null) {
+            legacy.add(name);
+            conf.markChanged();
+            return conf;
+        }
+        return new SecuredFile();
     }
 
     @TSchedule(delay = 20 * 180, period = 20 * 180, async = true)
     public static void saveFiles() {
         files.forEach((name, file) -> {
-            OfflinePlayer player = toPlayer(name);
-            if (!player.isOnline()) {
-                files.remove(name);
+            // 跳过未发生变动的数据
+            if (file instanceof SecuredFile && !((SecuredFile) file).isChanged()) {
+                return;
             }
-            set0(player, file);
+            save(name, file);
         });
+        evictFiles();
+        // 等待写入完成，服务器关闭时在此之后才会卸载插件
+        writer.flush().join();
+    }
+
+    /**
+     * 清理长时间未访问或超出数量限制的离线玩家数据，发生变动的数据会先写入
+     */
+    @TSchedule(delay = 20 * 30, period = 20 * 30, async = true)
+    public static void evictFiles() {
+        if (evicting.compareAndSet(false, true)) {
+            try {
+                files.evict(getCacheSize(), TimeUnit.SECONDS.toMillis(TabooLib.getConfig().getLong("LOCAL-PLAYER-CACHE-EXPIRE", 300)), LocalPlayer::isOnline, LocalPlayer::save);
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    public static LocalPlayerCache getCache() {
+        return files;
+    }
+
+    public static int getCacheSize() {
+        return TabooLib.getConfig().getInt("LOCAL-PLAYER-CACHE-SIZE", 1000);
+    }
+
+    public static boolean isOnline(String name) {
+        return isUniqueIdMode() ? Bukkit.getPlayer(UUID.fromString(name)) != null : Bukkit.getPlayerExact(name) != null;
     }
 
     public static File getFolder() {
@@ -99,7 +234,11 @@ public class LocalPlayer {
     }
 
     public static String toName(OfflinePlayer player) {
-        return isUniqueIdMode() ? player.getUniqueId().toString() : player.getName();
+        return toName(player.getUniqueId(), player.getName());
+    }
+
+    public static String toName(UUID uniqueId, String name) {
+        return isUniqueIdMode() ? uniqueId.toString() : name;
     }
 
     public static boolean isUniqueIdMode() {
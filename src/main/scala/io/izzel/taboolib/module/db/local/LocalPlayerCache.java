@@ -0,0 +1,117 @@
+package io.izzel.taboolib.module.db.local;
+
+import com.google.common.collect.Maps;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * 玩家数据缓存
+ * 按最后访问时间与数量清理，被固定（在线）的玩家不会被清理，发生变动的数据在写入完成后才会被清理
+ *
+ * @Since 2026-10-18 19:30
+ */
+public class LocalPlayerCache {
+
+    private final Map<String, Entry> entries = Maps.newConcurrentMap();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    public FileConfiguration get(String name) {
+        Entry entry = entries.get(name);
+        if (entry == null) {
+            missCount.increment();
+            return null;
+        }
+        hitCount.increment();
+        entry.access = System.currentTimeMillis();
+        return entry.file;
+    }
+
+    /**
+     * 返回已存在的数据，不存在时写入并返回 null
+     */
+    public FileConfiguration putIfAbsent(String name, FileConfiguration file) {
+        Entry entry = entries.putIfAbsent(name, new Entry(file));
+        return entry == null ? null : entry.file;
+    }
+
+    public void forEach(BiConsumer<String, FileConfiguration> consumer) {
+        entries.forEach((name, entry) -> consumer.accept(name, entry.file));
+    }
+
+    /**
+     * 清理超过 expireMillis 未访问的数据，数量超过 maxSize 时从最久未访问的数据开始清理
+     *
+     * @param pinned    不允许清理的数据
+     * @param writeBack 写入发生变动的数据
+     */
+    public void evict(int maxSize, long expireMillis, Predicate<String> pinned, BiFunction<String, FileConfiguration, CompletableFuture<Void>> writeBack) {
+        long time = System.currentTimeMillis();
+        int excess = entries.size() - maxSize;
+        List<Map.Entry<String, Entry>> candidates = entries.entrySet().stream()
+                .filter(e -> !pinned.test(e.getKey()))
+                .sorted(Comparator.comparingLong(e -> e.getValue().access))
+                .collect(Collectors.toList());
+        for (Map.Entry<String, Entry> candidate : candidates) {
+            boolean expired = expireMillis > 0 && time - candidate.getValue().access > expireMillis;
+            if (!expired && excess <= 0) {
+                break;
+            }
+            excess--;
+            String name = candidate.getKey();
+            Entry entry = candidate.getValue();
+            if (isChanged(entry.file)) {
+                writeBack.apply(name, entry.file).thenRun(() -> remove(name, entry));
+            } else {
+                remove(name, entry);
+            }
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    private void remove(String name, Entry entry) {
+        // 写入期间再次发生变动的数据留到下次清理
+        if (!isChanged(entry.file) && entries.remove(name, entry)) {
+            evictionCount.increment();
+        }
+    }
+
+    private boolean isChanged(FileConfiguration file) {
+        return !(file instanceof SecuredFile) || ((SecuredFile) file).isChanged();
+    }
+
+    static class Entry {
+
+        private final FileConfiguration file;
+        private volatile long access = System.currentTimeMillis();
+
+        Entry(FileConfiguration file) {
+            this.file = file;
+        }
+    }
+}
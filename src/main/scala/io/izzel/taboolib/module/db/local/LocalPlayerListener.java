@@ -0,0 +1,23 @@
+package io.izzel.taboolib.module.db.local;
+
+import io.izzel.taboolib.module.inject.TListener;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+
+/**
+ * 在玩家登录前预读数据，避免在主线程首次调用 {@link LocalPlayer#get} 时阻塞
+ *
+ * @Since 2026-10-18 19:05
+ */
+@TListener
+public class LocalPlayerListener implements Listener {
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent e) {
+        if (e.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            LocalPlayer.getAsync(LocalPlayer.toName(e.getUniqueId(), e.getName()));
+        }
+    }
+}
@@ -45,6 +45,10 @@ public class LocalPlugin {
 
     public void saveFiles() {
         files.forEach((name, file) -> {
+            // 跳过未发生变动的文件
+            if (file instanceof SecuredFile && !((SecuredFile) file).isChanged()) {
+                return;
+            }
             try {
                 file.save(toFile(name));
             } catch (Throwable t) {
@@ -1,15 +1,21 @@
 package io.izzel.taboolib.module.db.local;
 
+import com.google.common.collect.Sets;
 import io.izzel.taboolib.module.lite.SimpleReflection;
 import io.izzel.taboolib.util.Files;
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.MemorySection;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.yaml.snakeyaml.Yaml;
 
 import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 
 /**
@@ -18,19 +24,86 @@ import java.util.logging.Level;
  */
 public class SecuredFile extends YamlConfiguration {
 
+    private final Set<String> changed = Sets.newHashSet();
+    private boolean dirty;
+
     @Override
     public synchronized void set(String path, Object value) {
         super.set(path, value);
+        changed.add(path);
+    }
+
+    /**
+     * 取出的集合可能被直接修改，因此视为发生变动
+     */
+    @Override
+    public Object get(String path, Object def) {
+        return track(super.get(path, def));
+    }
+
+    /**
+     * 子节点同样记录变动，通过子节点 set 写入的内容也会被保存
+     */
+    @Override
+    public ConfigurationSection createSection(String path) {
+        // 多级路径交由父类逐级创建，最终仍会回到此处
+        if (path.isEmpty() || path.indexOf(options().pathSeparator()) >= 0) {
+            return super.createSection(path);
+        }
+        SecuredSection section = new SecuredSection(this, path);
+        map.put(path, section);
+        return section;
     }
 
     @Override
     public synchronized void save(File file) throws IOException {
         super.save(file);
+        markSaved();
     }
 
     @Override
     public synchronized void save(String file) throws IOException {
         super.save(file);
+        markSaved();
+    }
+
+    /**
+     * 自上次读取或保存后是否发生变动
+     * 通过 set（包括子节点的 set）写入的节点会被记录，取出 List 或 Map（getList、get 等）时同样视为发生变动
+     * 其他绕过 set 的修改（例如修改取出的可变对象）需要调用 {@link #markChanged()}，否则不会被保存
+     */
+    public synchronized boolean isChanged() {
+        return dirty || !changed.isEmpty();
+    }
+
+    /**
+     * 自上次读取或保存后通过 set 写入的节点
+     */
+    public synchronized Set<String> getChangedPaths() {
+        return Sets.newHashSet(changed);
+    }
+
+    /**
+     * 强制在下次保存时写入
+     */
+    public synchronized void markChanged() {
+        dirty = true;
+    }
+
+    public synchronized void markSaved() {
+        changed.clear();
+        dirty = false;
+    }
+
+    synchronized void markChanged(String path) {
+        changed.add(path);
+    }
+
+    Object track(Object value) {
+        if (value instanceof Collection || value instanceof Map) {
+            markChanged();
+        }
+        return value;
     }
 
     /**
@@ -58,6 +131,7 @@ public class SecuredFile extends YamlConfiguration {
     public void loadFromString(String contents) throws InvalidConfigurationException {
         try {
             super.loadFromString(contents);
+            markSaved();
         } catch (InvalidConfigurationException t) {
             System.out.println("Source: \n" + contents);
             throw t;
@@ -65,7 +139,7 @@ public class SecuredFile extends YamlConfiguration {
     }
 
     @Override
-    public String saveToString() {
+    public synchronized String saveToString() {
         return super.saveToString();
     }
 
@@ -98,4 +172,38 @@ public class SecuredFile extends YamlConfiguration {
         }
         return config;
     }
+
+    /**
+     * 将写入记录到所属的 SecuredFile
+     */
+    static class SecuredSection extends MemorySection {
+
+        SecuredSection(ConfigurationSection parent, String path) {
+            super(parent, path);
+        }
+
+        @Override
+        public void set(String path, Object value) {
+            SecuredFile root = (SecuredFile) getRoot();
+            synchronized (root) {
+                super.set(path, value);
+                root.markChanged(createPath(this, path));
+            }
+        }
+
+        @Override
+        public Object get(String path, Object def) {
+            return ((SecuredFile) getRoot()).track(super.get(path, def));
+        }
+
+        @Override
+        public ConfigurationSection createSection(String path) {
+            if (path.isEmpty() || path.indexOf(getRoot().options().pathSeparator()) >= 0) {
+                return super.createSection(path);
+            }
+            SecuredSection section = new SecuredSection(this, path);
+            map.put(path, section);
+            return section;
+        }
+    }
 }
@@ -0,0 +1,31 @@
+package io.izzel.taboolib.module.db.local;
+
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @Since 2026-10-18 18:20
+ */
+public class YamlCodec implements DataCodec {
+
+    @Override
+    public int getId() {
+        return 1;
+    }
+
+    @Override
+    public String getName() {
+        return "YAML";
+    }
+
+    @Override
+    public byte[] encode(FileConfiguration data) {
+        return data.saveToString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public SecuredFile decode(byte[] data, int offset, int length) {
+        return SecuredFile.loadConfiguration(new String(data, offset, length, StandardCharsets.UTF_8));
+    }
+}
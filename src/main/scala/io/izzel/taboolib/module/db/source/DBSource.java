@@ -1,17 +1,28 @@
 package io.izzel.taboolib.module.db.source;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import io.izzel.taboolib.TabooLib;
 import io.izzel.taboolib.module.config.TConfig;
 import io.izzel.taboolib.module.db.IHost;
+import io.izzel.taboolib.module.db.sql.SQLDialect;
 import io.izzel.taboolib.module.db.sql.SQLHost;
 import io.izzel.taboolib.module.db.sqlite.SQLiteHost;
 import io.izzel.taboolib.module.inject.TInject;
 import io.izzel.taboolib.module.locale.TLocale;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.bukkit.Bukkit;
 import org.bukkit.configuration.file.FileConfiguration;
 
 import javax.sql.DataSource;
+import java.sql.Connection;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * @Author sky
@@ -22,13 +33,29 @@ public class DBSource {
     @TInject(value = "datasource.yml", migrate = true)
     private static TConfig settings;
     private static final ConcurrentHashMap<IHost, DBSourceData> dataSource = new ConcurrentHashMap<>();
+    private static final Cache<DataSource, SQLDialect> dialect = CacheBuilder.newBuilder().weakKeys().build();
+    private static final ExecutorService defaultExecutor = Executors.newCachedThreadPool(new BasicThreadFactory.Builder().namingPattern("DBSource-Default-%d").daemon(true).build());
+    private static final Executor mainThreadExecutor = r -> {
+        if (Bukkit.isPrimaryThread()) {
+            r.run();
+        } else {
+            TabooLib.getPlugin().runTask(r);
+        }
+    };
 
     public static DataSource create(IHost host) {
         return create(host, null);
     }
 
     public static DataSource create(IHost host, HikariConfig hikariConfig) {
-        DBSourceData mapDataSource = dataSource.computeIfAbsent(host, x -> new DBSourceData(x, new HikariDataSource(hikariConfig == null ? createConfig(host) : hikariConfig)));
+        DBSourceData mapDataSource = dataSource.computeIfAbsent(host, x -> {
+            HikariConfig config = hikariConfig == null ? createConfig(host) : hikariConfig;
+            DBSourceMetrics metrics = new DBSourceMetrics();
+            if (config.getMetricsTrackerFactory() == null && config.getMetricRegistry() == null) {
+                config.setMetricsTrackerFactory(metrics);
+            }
+            return new DBSourceData(x, new HikariDataSource(config), metrics);
+        });
         mapDataSource.getActivePlugin().getAndIncrement();
         if (mapDataSource.getActivePlugin().get() == 1) {
             TLocale.Logger.info("MYSQL-HIKARI.CREATE-SUCCESS", host.getPlugin().getName(), host.getConnectionUrlSimple());
@@ -39,13 +66,92 @@ public class DBSource {
     }
 
     public static void closeDataSourceForce() {
-        dataSource.values().forEach(x -> x.getHikariDataSource().close());
+        dataSource.values().forEach(x -> {
+            x.shutdown();
+            x.getHikariDataSource().close();
+        });
+    }
+
+    /**
+     * 获取数据源对应的异步查询线程池，未通过 DBSource 创建的数据源使用公共线程池
+     */
+    public static ExecutorService getExecutor(DataSource source) {
+        DBSourceData data = getData(source);
+        return data != null ? data.getExecutor() : defaultExecutor;
+    }
+
+    /**
+     * 获取通过 DBSource 创建的数据源信息
+     */
+    public static DBSourceData getData(DataSource source) {
+        if (source != null) {
+            for (DBSourceData data : dataSource.values()) {
+                if (data.getHikariDataSource() == source) {
+                    return data;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取数据源的连接池与查询统计，未通过 DBSource 创建的数据源返回 null
+     */
+    public static DBSourceMetrics getMetrics(DataSource source) {
+        DBSourceData data = getData(source);
+        return data != null ? data.getMetrics() : null;
+    }
+
+    public static DBSourceMetrics getMetrics(IHost host) {
+        DBSourceData data = dataSource.get(host);
+        return data != null ? data.getMetrics() : null;
+    }
+
+    public static void recordQuery(DataSource source, String query, long nanos, boolean failed) {
+        if (settings.getBoolean("Metrics.Enable", true)) {
+            DBSourceMetrics metrics = getMetrics(source);
+            if (metrics != null) {
+                metrics.recordQuery(query, nanos, failed);
+            }
+        }
+    }
+
+    /**
+     * 数据源的方言（如 upsert 语法），结果按数据源缓存
+     */
+    public static SQLDialect getDialect(DataSource source) {
+        SQLDialect value = dialect.getIfPresent(source);
+        if (value == null) {
+            try (Connection connection = source.getConnection()) {
+                value = SQLDialect.of(connection.getMetaData());
+                dialect.put(source, value);
+            } catch (Exception e) {
+                return SQLDialect.MYSQL;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 在主线程执行回调
+     */
+    public static Executor getMainThreadExecutor() {
+        return mainThreadExecutor;
+    }
+
+    /**
+     * 使 Future 在主线程完成，后续的非 async 回调也将在主线程执行
+     */
+    public static <T> CompletableFuture<T> toMainThread(CompletableFuture<T> future) {
+        return future.whenCompleteAsync((r, t) -> {
+        }, mainThreadExecutor);
     }
 
     public static void closeDataSource(IHost host) {
         if (host != null && dataSource.containsKey(host)) {
             DBSourceData mapDataSource = dataSource.get(host);
             if (mapDataSource.getActivePlugin().getAndDecrement() <= 1) {
+                mapDataSource.shutdown();
                 mapDataSource.getHikariDataSource().close();
                 dataSource.remove(host);
                 TLocale.Logger.info("MYSQL-HIKARI.CLOSE-SUCCESS", host.getPlugin().getName(), host.getConnectionUrlSimple());
@@ -77,6 +183,13 @@ public class DBSource {
         if (settings.contains("DefaultSettings.ConnectionTestQuery")) {
             config.setConnectionTestQuery(settings.getString("DefaultSettings.ConnectionTestQuery"));
         }
+        // 驱动的预编译语句缓存，DataSourceProperty 中的同名配置优先
+        if (host instanceof SQLHost && settings.getBoolean("StatementCache.Enable", true)) {
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", settings.getString("StatementCache.Size", "250"));
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", settings.getString("StatementCache.SqlLimit", "2048"));
+            config.addDataSourceProperty("useServerPrepStmts", settings.getString("StatementCache.ServerPrepare", "true"));
+        }
         if (settings.contains("DefaultSettings.DataSourceProperty")) {
             settings.getConfigurationSection("DefaultSettings.DataSourceProperty").getKeys(false).forEach(key -> config.addDataSourceProperty(key, settings.getString("DefaultSettings.DataSourceProperty." + key)));
         }
@@ -2,7 +2,14 @@ package io.izzel.taboolib.module.db.source;
 
 import com.zaxxer.hikari.HikariDataSource;
 import io.izzel.taboolib.module.db.IHost;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+import org.bukkit.Bukkit;
 
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -14,11 +21,14 @@ public class DBSourceData {
     private IHost host;
     private AtomicInteger activePlugin;
     private HikariDataSource hikariDataSource;
+    private DBSourceMetrics metrics;
+    private ExecutorService executor;
 
-    DBSourceData(IHost host, HikariDataSource hikariDataSource) {
+    DBSourceData(IHost host, HikariDataSource hikariDataSource, DBSourceMetrics metrics) {
         this.host = host;
         this.activePlugin = new AtomicInteger();
         this.hikariDataSource = hikariDataSource;
+        this.metrics = metrics;
     }
 
     public IHost getHost() {
@@ -32,4 +42,34 @@ public class DBSourceData {
     public HikariDataSource getHikariDataSource() {
         return hikariDataSource;
     }
+
+    public DBSourceMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 异步查询线程池，线程数与连接池大小一致
+     * 队列已满时，主线程提交的任务会被拒绝，其他线程提交的任务由提交线程自行执行
+     */
+    public synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            int threads = DBSource.getSettings().getInt("AsyncSettings.Threads", hikariDataSource.getMaximumPoolSize());
+            int queueSize = DBSource.getSettings().getInt("AsyncSettings.QueueSize", 1000);
+            executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(queueSize), new BasicThreadFactory.Builder().namingPattern("DBSource-" + host.getConnectionUrlSimple() + "-%d").daemon(true).build(), (r, e) -> {
+                if (e.isShutdown() || Bukkit.isPrimaryThread()) {
+                    throw new RejectedExecutionException("Database queue is full (" + host.getConnectionUrlSimple() + ")");
+                }
+                r.run();
+            });
+            ((ThreadPoolExecutor) executor).allowCoreThreadTimeOut(true);
+        }
+        return executor;
+    }
+
+    synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
 }
@@ -0,0 +1,165 @@
+package io.izzel.taboolib.module.db.source;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import io.izzel.taboolib.module.locale.logger.TLogger;
+import io.izzel.taboolib.module.profiler.LatencyHistogram;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 连接池与查询统计
+ * 连接池部分由 Hikari 通过 MetricsTrackerFactory 回调，查询部分由 RunnableQuery 与 RunnableUpdate 记录
+ * 查询按语句文本（即语句结构，参数以 ? 表示）分别统计，超过数量上限的语句合并统计
+ *
+ * @Since 2026-10-18 20:10
+ */
+public class DBSourceMetrics implements MetricsTrackerFactory {
+
+    private static final int MAX_QUERIES = 256;
+    private static final int MAX_SLOW_QUERIES = 20;
+    private static final String OTHER = "<other>";
+
+    private final LatencyHistogram acquire = new LatencyHistogram();
+    private final LatencyHistogram usage = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+    private final Map<String, QueryMetrics> queries = Maps.newConcurrentMap();
+    private final Deque<String> slowQueries = new ArrayDeque<>();
+    private PoolStats poolStats;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.record(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    public void recordQuery(String query, long nanos, boolean failed) {
+        QueryMetrics metrics = queries.get(query);
+        if (metrics == null) {
+            metrics = queries.size() < MAX_QUERIES ? queries.computeIfAbsent(query, q -> new QueryMetrics()) : queries.computeIfAbsent(OTHER, q -> new QueryMetrics());
+        }
+        metrics.latency.record(nanos);
+        if (failed) {
+            metrics.errors.increment();
+        }
+        long threshold = DBSource.getSettings().getLong("Metrics.SlowQueryThreshold", 200);
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        if (threshold > 0 && millis >= threshold) {
+            metrics.slow.increment();
+            String log = millis + "ms " + query;
+            synchronized (slowQueries) {
+                if (slowQueries.size() >= MAX_SLOW_QUERIES) {
+                    slowQueries.pollFirst();
+                }
+                slowQueries.addLast(log);
+            }
+            if (DBSource.getSettings().getBoolean("Metrics.SlowQueryLog", true)) {
+                TLogger.getGlobalLogger().warn("Slow query (" + log + ")");
+            }
+        }
+    }
+
+    public int getActiveConnections() {
+        return poolStats == null ? 0 : poolStats.getActiveConnections();
+    }
+
+    public int getIdleConnections() {
+        return poolStats == null ? 0 : poolStats.getIdleConnections();
+    }
+
+    public int getTotalConnections() {
+        return poolStats == null ? 0 : poolStats.getTotalConnections();
+    }
+
+    /**
+     * 等待连接的线程数
+     */
+    public int getPendingThreads() {
+        return poolStats == null ? 0 : poolStats.getPendingThreads();
+    }
+
+    public int getMaxConnections() {
+        return poolStats == null ? 0 : poolStats.getMaxConnections();
+    }
+
+    /**
+     * 获取连接的耗时
+     */
+    public LatencyHistogram getAcquire() {
+        return acquire;
+    }
+
+    /**
+     * 连接被借出的时长
+     */
+    public LatencyHistogram getUsage() {
+        return usage;
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public Map<String, QueryMetrics> getQueries() {
+        return queries;
+    }
+
+    public List<String> getSlowQueries() {
+        synchronized (slowQueries) {
+            return Lists.newArrayList(slowQueries);
+        }
+    }
+
+    public void reset() {
+        acquire.reset();
+        usage.reset();
+        timeouts.reset();
+        queries.clear();
+        synchronized (slowQueries) {
+            slowQueries.clear();
+        }
+    }
+
+    public static class QueryMetrics {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getSlow() {
+            return slow.sum();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package io.izzel.taboolib.module.db.sql;
+
+import com.google.common.collect.Lists;
+import io.izzel.taboolib.module.db.sql.query.QueryDelete;
+import io.izzel.taboolib.module.db.sql.query.QueryInsert;
+import io.izzel.taboolib.module.db.sql.query.QueryUpdate;
+import io.izzel.taboolib.module.locale.logger.TLogger;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写入缓冲
+ * 连续提交的相同结构（SQL 文本）的写入会被归并，在同一事务中通过 addBatch/executeBatch 执行，
+ * 相同结构的 insert 会被改写为多行 insert ... values (...), (...)
+ * 所有写入按提交顺序执行，不同结构的写入不会被重新排序
+ *
+ * @Since 2026-10-18 14:20
+ */
+public class SQLBatchWriter {
+
+    private static final int SQLITE_MAX_VARIABLES = 999;
+    private static final int MYSQL_MAX_VARIABLES = 65535;
+
+    private final SQLTable table;
+    private final DataSource dataSource;
+    private final ScheduledExecutorService executor;
+    private final Object lock = new Object();
+    // 按提交顺序排列，每组为连续提交的相同结构的写入
+    private List<List<Entry>> pending = Lists.newArrayList();
+    private ScheduledFuture<?> flushTask;
+    private CompletableFuture<Void> lastFlush = CompletableFuture.completedFuture(null);
+    private int pendingCount;
+    private int batchSize = 100;
+    private long flushInterval = 1000;
+    private int maxVariables = -1;
+    private boolean rewriteInsert = true;
+    private boolean closed;
+
+    public SQLBatchWriter(SQLTable table, DataSource dataSource) {
+        this.table = table;
+        this.dataSource = dataSource;
+        this.executor = Executors.newSingleThreadScheduledExecutor(new BasicThreadFactory.Builder().namingPattern("SQLBatchWriter-" + table.getTableName() + "-%d").daemon(true).build());
+    }
+
+    /**
+     * 缓冲的写入数量达到该值时立即提交
+     */
+    public SQLBatchWriter batchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        return this;
+    }
+
+    /**
+     * 定时提交的间隔（毫秒）
+     */
+    public SQLBatchWriter flushInterval(long flushInterval) {
+        this.flushInterval = flushInterval;
+        return this;
+    }
+
+    public SQLBatchWriter rewriteInsert(boolean rewriteInsert) {
+        this.rewriteInsert = rewriteInsert;
+        return this;
+    }
+
+    public CompletableFuture<Void> insert(Object... value) {
+        return add(table.insert(value));
+    }
+
+    public CompletableFuture<Void> add(QueryInsert insert) {
+        insert.dialect(dataSource);
+        return add(new Entry(insert.toQuery(), insert, insert::toStatement));
+    }
+
+    public CompletableFuture<Void> add(QueryUpdate update) {
+        return add(new Entry(update.toQuery(), null, update::toStatement));
+    }
+
+    public CompletableFuture<Void> add(QueryDelete delete) {
+        return add(new Entry(delete.toQuery(), null, delete::toStatement));
+    }
+
+    /**
+     * 提交当前缓冲的所有写入，返回的 Future 在提交完成后结束
+     */
+    public CompletableFuture<Void> flush() {
+        synchronized (lock) {
+            List<List<Entry>> entries = drain();
+            // 没有新的写入时返回上一次提交，保证调用者能等待到仍在执行中的写入
+            if (!entries.isEmpty()) {
+                lastFlush = CompletableFuture.runAsync(() -> execute(entries), executor);
+            }
+            return lastFlush;
+        }
+    }
+
+    /**
+     * 提交剩余写入并关闭
+     */
+    public CompletableFuture<Void> close() {
+        synchronized (lock) {
+            closed = true;
+            if (flushTask != null) {
+                flushTask.cancel(false);
+            }
+        }
+        CompletableFuture<Void> future = flush();
+        executor.shutdown();
+        return future;
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pendingCount;
+        }
+    }
+
+    public SQLTable getTable() {
+        return table;
+    }
+
+    private CompletableFuture<Void> add(Entry entry) {
+        boolean full;
+        synchronized (lock) {
+            if (closed) {
+                throw new IllegalStateException("writer closed");
+            }
+            List<Entry> last = pending.isEmpty() ? null : pending.get(pending.size() - 1);
+            if (last != null && last.get(0).query.equals(entry.query)) {
+                last.add(entry);
+            } else {
+                pending.add(Lists.newArrayList(entry));
+            }
+            full = ++pendingCount >= batchSize;
+            if (flushTask == null && flushInterval > 0) {
+                flushTask = executor.scheduleAtFixedRate(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full) {
+            flush();
+        }
+        return entry.future;
+    }
+
+    private List<List<Entry>> drain() {
+        synchronized (lock) {
+            List<List<Entry>> entries = pending;
+            pending = Lists.newArrayList();
+            pendingCount = 0;
+            return entries;
+        }
+    }
+
+    private void execute(List<List<Entry>> entries) {
+        Connection connection = null;
+        boolean autoCommit = true;
+        try {
+            connection = dataSource.getConnection();
+            autoCommit = connection.getAutoCommit();
+            connection.setAutoCommit(false);
+            for (List<Entry> list : entries) {
+                if (rewriteInsert && list.size() > 1 && list.get(0).insert != null && list.get(0).insert.getValueCount() > 0) {
+                    executeInsert(connection, list);
+                } else {
+                    executeBatch(connection, list.get(0).query, list);
+                }
+            }
+            connection.commit();
+            entries.forEach(list -> list.forEach(entry -> entry.future.complete(null)));
+        } catch (Throwable t) {
+            if (connection != null) {
+                try {
+                    connection.rollback();
+                } catch (Throwable ignored) {
+                }
+            }
+            TLogger.getGlobalLogger().error("An exception occurred in the database. (batch " + table.getTableName() + ", " + entries.stream().mapToInt(List::size).sum() + " statements)");
+            TLogger.getGlobalLogger().error("Reason: " + t.toString());
+            t.printStackTrace();
+            entries.forEach(list -> list.forEach(entry -> entry.future.completeExceptionally(t)));
+        } finally {
+            if (connection != null) {
+                try {
+                    connection.setAutoCommit(autoCommit);
+                } catch (Throwable ignored) {
+                }
+                SQLExecutor.freeConnection(connection);
+            }
+        }
+    }
+
+    private void executeBatch(Connection connection, String query, List<Entry> list) throws Exception {
+        PreparedStatement preparedStatement = null;
+        try {
+            preparedStatement = connection.prepareStatement(query);
+            for (Entry entry : list) {
+                entry.statement.execute(preparedStatement, 1);
+                preparedStatement.addBatch();
+            }
+            preparedStatement.executeBatch();
+        } finally {
+            SQLExecutor.freeStatement(preparedStatement, null);
+        }
+    }
+
+    private void executeInsert(Connection connection, List<Entry> list) throws Exception {
+        int columns = list.get(0).insert.getValueCount();
+        int rows = Math.max(1, Math.min(batchSize, getMaxVariables(connection) / columns));
+        for (int from = 0; from < list.size(); from += rows) {
+            List<Entry> chunk = list.subList(from, Math.min(list.size(), from + rows));
+            PreparedStatement preparedStatement = null;
+            try {
+                preparedStatement = connection.prepareStatement(list.get(0).insert.toQuery(chunk.size()));
+                int index = 1;
+                for (Entry entry : chunk) {
+                    index = entry.statement.execute(preparedStatement, index);
+                }
+                preparedStatement.executeUpdate();
+            } finally {
+                SQLExecutor.freeStatement(preparedStatement, null);
+            }
+        }
+    }
+
+    private int getMaxVariables(Connection connection) throws Exception {
+        if (maxVariables == -1) {
+            maxVariables = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("sqlite") ? SQLITE_MAX_VARIABLES : MYSQL_MAX_VARIABLES;
+        }
+        return maxVariables;
+    }
+
+    interface BatchStatement {
+
+        int execute(PreparedStatement preparedStatement, int index) throws SQLException;
+    }
+
+    static class Entry {
+
+        private final String query;
+        private final QueryInsert insert;
+        private final BatchStatement statement;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Entry(String query, QueryInsert insert, BatchStatement statement) {
+            this.query = query;
+            this.insert = insert;
+            this.statement = statement;
+        }
+    }
+}
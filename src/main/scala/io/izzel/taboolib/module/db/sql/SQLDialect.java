@@ -0,0 +1,39 @@
+package io.izzel.taboolib.module.db.sql;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+
+/**
+ * @Since 2026-10-18 17:10
+ */
+public enum SQLDialect {
+
+    /**
+     * insert ... on duplicate key update
+     */
+    MYSQL,
+
+    /**
+     * insert ... on conflict (key) do update
+     */
+    SQLITE,
+
+    /**
+     * 3.24 以下的 SQLite 不支持 upsert 语法，使用 insert or replace（未指定的列会被重置）
+     */
+    SQLITE_LEGACY;
+
+    public static SQLDialect of(DatabaseMetaData metaData) throws SQLException {
+        if (!metaData.getDatabaseProductName().toLowerCase().contains("sqlite")) {
+            return MYSQL;
+        }
+        String[] version = metaData.getDatabaseProductVersion().split("\\.");
+        try {
+            int major = Integer.parseInt(version[0]);
+            int minor = version.length > 1 ? Integer.parseInt(version[1]) : 0;
+            return major > 3 || (major == 3 && minor >= 24) ? SQLITE : SQLITE_LEGACY;
+        } catch (NumberFormatException e) {
+            return SQLITE_LEGACY;
+        }
+    }
+}
@@ -87,6 +87,13 @@ public class SQLTable {
         return new QueryInsert().table(tableName).value(value);
     }
 
+    /**
+     * 插入或在主键冲突时更新：table.upsert("name").row("name", "data").value(name, data)
+     */
+    public QueryInsert upsert(String... key) {
+        return new QueryInsert().table(tableName).upsert(key);
+    }
+
     public QueryDelete delete() {
         return new QueryDelete().table(tableName);
     }
@@ -95,6 +102,13 @@ public class SQLTable {
         return new QueryDelete().table(tableName).where(where);
     }
 
+    /**
+     * 批量写入，需在不再使用时调用 {@link SQLBatchWriter#close()}
+     */
+    public SQLBatchWriter batch(DataSource dataSource) {
+        return new SQLBatchWriter(this, dataSource);
+    }
+
     /**
      * 4.x version
      */
@@ -1,5 +1,7 @@
 package io.izzel.taboolib.module.db.sql.query;
 
+import java.util.List;
+
 /**
  * @Author sky
  * @Since 2019-10-26 14:02
@@ -18,7 +20,20 @@ public class Order {
         this.desc = desc;
     }
 
+    public String getRow() {
+        return row;
+    }
+
+    public boolean isDesc() {
+        return desc;
+    }
+
     public String toQuery() {
         return row + " " + (desc ? "desc" : "asc");
     }
+
+    void shape(List<Object> shape) {
+        shape.add(row);
+        shape.add(desc);
+    }
 }
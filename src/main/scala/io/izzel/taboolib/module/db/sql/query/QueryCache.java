@@ -0,0 +1,36 @@
+package io.izzel.taboolib.module.db.sql.query;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 语句文本缓存
+ * 以语句结构（表名、列名、条件符号及参数数量等）为键缓存生成的 SQL 文本，
+ * 结构相同仅参数不同的查询不再重复拼接，同时保证交给驱动的语句文本一致以命中驱动的预编译缓存
+ *
+ * @Since 2026-10-18 16:05
+ */
+public class QueryCache {
+
+    private static final Cache<List<Object>, String> cache = CacheBuilder.newBuilder().maximumSize(4096).build();
+
+    static String get(List<Object> shape, Supplier<String> query) {
+        String cached = cache.getIfPresent(shape);
+        if (cached == null) {
+            cached = query.get();
+            cache.put(shape, cached);
+        }
+        return cached;
+    }
+
+    public static long size() {
+        return cache.size();
+    }
+
+    public static void clear() {
+        cache.invalidateAll();
+    }
+}
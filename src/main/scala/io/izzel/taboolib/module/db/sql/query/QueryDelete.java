@@ -3,6 +3,8 @@ package io.izzel.taboolib.module.db.sql.query;
 import com.google.common.collect.Lists;
 
 import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -36,15 +38,25 @@ public class QueryDelete {
     }
 
     public RunnableUpdate to(DataSource dataSource) {
-        return new RunnableUpdate(toQuery()).dataSource(dataSource).statement(s -> {
-            int index = 1;
-            for (Where w : where) {
-                index = w.toStatement(s, index);
-            }
-        });
+        return new RunnableUpdate(toQuery()).dataSource(dataSource).statement(s -> toStatement(s, 1));
+    }
+
+    public int toStatement(PreparedStatement statement, int index) throws SQLException {
+        for (Where w : where) {
+            index = w.toStatement(statement, index);
+        }
+        return index;
     }
 
     public String toQuery() {
+        List<Object> shape = Lists.newArrayList();
+        shape.add("delete");
+        shape.add(tableName);
+        where.forEach(w -> w.shape(shape));
+        return QueryCache.get(shape, this::buildQuery);
+    }
+
+    private String buildQuery() {
         StringBuilder builder = new StringBuilder();
         builder.append("delete from ").append(tableName);
         builder.append(" ");
@@ -1,8 +1,13 @@
 package io.izzel.taboolib.module.db.sql.query;
 
 import com.google.common.collect.Lists;
+import io.izzel.taboolib.module.db.source.DBSource;
+import io.izzel.taboolib.module.db.sql.SQLDialect;
+import io.izzel.taboolib.util.ArrayUtil;
 
 import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -14,13 +19,38 @@ import java.util.stream.Collectors;
 public class QueryInsert {
 
     private String tableName;
+    private List<String> row = Lists.newArrayList();
     private List<Object> value = Lists.newArrayList();
+    private List<String> upsert;
+    private SQLDialect dialect;
 
     public QueryInsert table(String tableName) {
         this.tableName = tableName;
         return this;
     }
 
+    public QueryInsert row(String... row) {
+        Collections.addAll(this.row, row);
+        return this;
+    }
+
+    /**
+     * 主键（或唯一键）冲突时更新其余列，需要通过 row 指定列名
+     * 语法见 {@link SQLDialect}
+     */
+    public QueryInsert upsert(String... key) {
+        this.upsert = ArrayUtil.asList(key);
+        return this;
+    }
+
+    /**
+     * 指定 upsert 的语法，未指定时根据数据源判断
+     */
+    public QueryInsert dialect(SQLDialect dialect) {
+        this.dialect = dialect;
+        return this;
+    }
+
     public QueryInsert value(Object... value) {
         Collections.addAll(this.value, value);
         return this;
@@ -31,23 +61,88 @@ public class QueryInsert {
     }
 
     public RunnableUpdate to(DataSource dataSource) {
-        return new RunnableUpdate(toQuery()).dataSource(dataSource).statement(s -> {
-            int index = 1;
-            for (Object v : value) {
-                s.setObject(index++, v);
-            }
-        });
+        dialect(dataSource);
+        return new RunnableUpdate(toQuery()).dataSource(dataSource).statement(s -> toStatement(s, 1));
+    }
+
+    public int toStatement(PreparedStatement statement, int index) throws SQLException {
+        for (Object v : value) {
+            statement.setObject(index++, v);
+        }
+        return index;
+    }
+
+    /**
+     * 多行插入：insert into table values (?, ?), (?, ?)
+     */
+    public String toQuery(int rows) {
+        List<Object> shape = Lists.newArrayList();
+        shape.add("insert");
+        shape.add(tableName);
+        shape.add(row.size());
+        shape.addAll(row);
+        shape.add(value.size());
+        shape.add(rows);
+        if (upsert != null) {
+            shape.add(dialect);
+            shape.addAll(upsert);
+        }
+        return QueryCache.get(shape, () -> buildQuery(rows));
+    }
+
+    public QueryInsert dialect(DataSource dataSource) {
+        if (upsert != null && dialect == null) {
+            dialect = DBSource.getDialect(dataSource);
+        }
+        return this;
+    }
+
+    public boolean isUpsert() {
+        return upsert != null;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public int getValueCount() {
+        return value.size();
     }
 
     public String toQuery() {
+        return toQuery(1);
+    }
+
+    private String buildQuery(int rows) {
         StringBuilder builder = new StringBuilder();
-        builder.append("insert into ").append(tableName);
+        builder.append(upsert != null && dialect == SQLDialect.SQLITE_LEGACY ? "insert or replace into " : "insert into ").append(tableName);
         builder.append(" ");
-        builder.append("values (");
-        if (!value.isEmpty()) {
-            builder.append(value.stream().map(i -> "?").collect(Collectors.joining(", ")));
-            builder.append(" ");
+        if (!row.isEmpty()) {
+            builder.append("(").append(String.join(", ", row)).append(") ");
+        }
+        builder.append("values ");
+        String values = "(" + value.stream().map(i -> "?").collect(Collectors.joining(", ")) + ")";
+        for (int i = 0; i < rows; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(values);
+        }
+        if (upsert != null && dialect != SQLDialect.SQLITE_LEGACY) {
+            List<String> update = row.stream().filter(r -> !upsert.contains(r)).collect(Collectors.toList());
+            if (dialect == SQLDialect.SQLITE) {
+                builder.append(" on conflict (").append(String.join(", ", upsert)).append(") ");
+                if (update.isEmpty()) {
+                    builder.append("do nothing");
+                } else {
+                    builder.append("do update set ").append(update.stream().map(r -> r + " = excluded." + r).collect(Collectors.joining(", ")));
+                }
+            } else {
+                // 没有可更新的列时以主键自身赋值，等同于忽略
+                List<String> target = update.isEmpty() ? upsert : update;
+                builder.append(" on duplicate key update ").append(target.stream().map(r -> r + " = values(" + r + ")").collect(Collectors.joining(", ")));
+            }
         }
-        return builder.append(")").toString().trim();
+        return builder.toString();
     }
 }
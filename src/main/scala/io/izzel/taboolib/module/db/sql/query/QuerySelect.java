@@ -6,7 +6,9 @@ import io.izzel.taboolib.util.ArrayUtil;
 import javax.sql.DataSource;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * @Author sky
@@ -56,6 +58,30 @@ public class QuerySelect {
         return this;
     }
 
+    /**
+     * 键集分页：从上一页最后一行的排序值之后开始读取，last 为 null 时读取第一页
+     * 排序列应当唯一（如主键），否则相同值的行可能被跳过
+     */
+    public QuerySelect seek(Order order, Object last) {
+        if (last != null) {
+            this.where.add(order.isDesc() ? Where.less(order.getRow(), last) : Where.more(order.getRow(), last));
+        }
+        this.order.add(order);
+        return this;
+    }
+
+    public QuerySelect page(Order order, Object last, int size) {
+        return seek(order, last).limit(size);
+    }
+
+    public <T> Stream<T> stream(DataSource dataSource, RowMapper<T> mapper) {
+        return to(dataSource).streaming().stream(mapper);
+    }
+
+    public <T> long forEach(DataSource dataSource, RowMapper<T> mapper, Consumer<? super T> consumer) {
+        return to(dataSource).streaming().forEach(mapper, consumer);
+    }
+
     public boolean find(DataSource dataSource) {
         return to(dataSource).find();
     }
@@ -70,6 +96,20 @@ public class QuerySelect {
     }
 
     public String toQuery() {
+        List<Object> shape = Lists.newArrayList();
+        shape.add("select");
+        shape.add(tableName);
+        shape.add(rowName);
+        shape.add(distinct);
+        shape.add(where.size());
+        where.forEach(w -> w.shape(shape));
+        shape.add(order.size());
+        order.forEach(o -> o.shape(shape));
+        shape.add(limit);
+        return QueryCache.get(shape, this::buildQuery);
+    }
+
+    private String buildQuery() {
         StringBuilder builder = new StringBuilder();
         builder.append("select");
         builder.append(" ");
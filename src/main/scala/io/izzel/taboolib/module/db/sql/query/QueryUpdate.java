@@ -4,6 +4,8 @@ import com.google.common.collect.Lists;
 import io.izzel.taboolib.util.KV;
 
 import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -43,18 +45,30 @@ public class QueryUpdate {
     }
 
     public RunnableUpdate to(DataSource dataSource) {
-        return new RunnableUpdate(toQuery()).dataSource(dataSource).statement(s -> {
-            int index = 1;
-            for (KV<String, Object> pair : set) {
-                s.setObject(index++, pair.getValue());
-            }
-            for (Where w : where) {
-                index = w.toStatement(s, index);
-            }
-        });
+        return new RunnableUpdate(toQuery()).dataSource(dataSource).statement(s -> toStatement(s, 1));
+    }
+
+    public int toStatement(PreparedStatement statement, int index) throws SQLException {
+        for (KV<String, Object> pair : set) {
+            statement.setObject(index++, pair.getValue());
+        }
+        for (Where w : where) {
+            index = w.toStatement(statement, index);
+        }
+        return index;
     }
 
     public String toQuery() {
+        List<Object> shape = Lists.newArrayList();
+        shape.add("update");
+        shape.add(tableName);
+        shape.add(set.size());
+        set.forEach(s -> shape.add(s.getKey()));
+        where.forEach(w -> w.shape(shape));
+        return QueryCache.get(shape, this::buildQuery);
+    }
+
+    private String buildQuery() {
         StringBuilder builder = new StringBuilder();
         builder.append("update ").append(tableName);
         builder.append(" ");
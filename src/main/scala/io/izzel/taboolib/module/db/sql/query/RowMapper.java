@@ -0,0 +1,13 @@
+package io.izzel.taboolib.module.db.sql.query;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * @Since 2026-10-18 16:40
+ */
+public interface RowMapper<T> {
+
+    T map(ResultSet resultSet) throws SQLException;
+
+}
@@ -1,5 +1,6 @@
 package io.izzel.taboolib.module.db.sql.query;
 
+import io.izzel.taboolib.module.db.source.DBSource;
 import io.izzel.taboolib.module.db.sql.SQLExecutor;
 import io.izzel.taboolib.module.locale.logger.TLogger;
 
@@ -8,6 +9,14 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * @Author sky
@@ -22,6 +31,9 @@ public class RunnableQuery {
     private TaskResult resultAutoNext;
     private Connection connection;
     private boolean autoClose;
+    private boolean callbackMainThread;
+    private boolean streaming;
+    private int fetchSize;
     private String query;
 
     public RunnableQuery(String query) {
@@ -63,6 +75,31 @@ public class RunnableQuery {
         return this;
     }
 
+    /**
+     * 异步查询的结果在主线程返回
+     */
+    public RunnableQuery callbackMainThread() {
+        this.callbackMainThread = true;
+        return this;
+    }
+
+    /**
+     * 每次从数据库读取的行数
+     */
+    public RunnableQuery fetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * 逐行读取结果，MySQL 下使用流式结果集（fetchSize = Integer.MIN_VALUE），
+     * 流式读取期间该连接不能执行其他语句
+     */
+    public RunnableQuery streaming() {
+        this.streaming = true;
+        return this;
+    }
+
     public <T> T run(Object def, T translate) {
         Object object = run(def);
         return object == null ? def == null ? null : (T) def : (T) object;
@@ -78,20 +115,119 @@ public class RunnableQuery {
     }
 
     public Object run(Object def) {
+        try {
+            return execute(def);
+        } catch (Exception e) {
+            printException(e);
+            return def;
+        }
+    }
+
+    public CompletableFuture<Object> runAsync() {
+        return runAsync(null);
+    }
+
+    public <T> CompletableFuture<T> runAsync(Object def, Class<? extends T> translate) {
+        return runAsync(def).thenApply(object -> (T) object);
+    }
+
+    /**
+     * 在数据源对应的线程池中执行，队列已满或查询出错时返回的 Future 以对应的异常结束
+     */
+    public CompletableFuture<Object> runAsync(Object def) {
+        CompletableFuture<Object> future;
+        try {
+            future = CompletableFuture.supplyAsync(() -> {
+                try {
+                    return execute(def);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, DBSource.getExecutor(dataSource));
+        } catch (RejectedExecutionException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        return callbackMainThread ? DBSource.toMainThread(future) : future;
+    }
+
+    public CompletableFuture<Boolean> findAsync() {
+        this.resultNext = r -> true;
+        return runAsync(false, Boolean.class);
+    }
+
+    public boolean find() {
+        this.resultNext = r -> true;
+        return run(false, false);
+    }
+
+    /**
+     * 以游标方式读取结果，结果读取完毕或流被关闭时自动释放连接
+     * 未读取完毕的流需要手动关闭（try-with-resources），读取中途出错时抛出 IllegalStateException
+     */
+    public <T> Stream<T> stream(RowMapper<T> mapper) {
+        Connection connection = null;
+        PreparedStatement preparedStatement = null;
+        ResultSet resultSet = null;
+        boolean close = dataSource != null || autoClose;
+        try {
+            connection = dataSource != null ? dataSource.getConnection() : this.connection;
+            if (connection == null) {
+                return Stream.empty();
+            }
+            preparedStatement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if (streaming && isMySQL(connection)) {
+                preparedStatement.setFetchSize(Integer.MIN_VALUE);
+            } else if (fetchSize > 0) {
+                preparedStatement.setFetchSize(fetchSize);
+            }
+            if (statement != null) {
+                statement.execute(preparedStatement);
+            }
+            resultSet = preparedStatement.executeQuery();
+        } catch (Exception e) {
+            printException(e);
+            SQLExecutor.freeStatement(preparedStatement, resultSet);
+            if (close) {
+                SQLExecutor.freeConnection(connection);
+            }
+            return Stream.empty();
+        }
+        Cursor<T> cursor = new Cursor<>(close ? connection : null, preparedStatement, resultSet, mapper);
+        return StreamSupport.stream(cursor, false).onClose(cursor::close);
+    }
+
+    /**
+     * 逐行处理结果，返回处理的行数，读取中途出错时抛出 IllegalStateException
+     */
+    public <T> long forEach(RowMapper<T> mapper, Consumer<? super T> consumer) {
+        long count = 0;
+        try (Stream<T> stream = stream(mapper)) {
+            for (Spliterator<T> spliterator = stream.spliterator(); spliterator.tryAdvance(consumer); ) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Object execute(Object def) throws Exception {
         PreparedStatement preparedStatement = null;
         ResultSet resultSet = null;
         if (dataSource != null) {
+            long time = System.nanoTime();
+            boolean failed = true;
             try (Connection connection = dataSource.getConnection()) {
                 preparedStatement = connection.prepareStatement(query);
                 if (statement != null) {
                     statement.execute(preparedStatement);
                 }
                 resultSet = preparedStatement.executeQuery();
-                return getResult(resultSet);
-            } catch (Exception e) {
-                printException(e);
+                Object result = getResult(resultSet);
+                failed = false;
+                return result;
             } finally {
                 SQLExecutor.freeStatement(preparedStatement, resultSet);
+                DBSource.recordQuery(dataSource, query, System.nanoTime() - time, failed);
             }
         } else if (connection != null) {
             try {
@@ -101,8 +237,6 @@ public class RunnableQuery {
                 }
                 resultSet = preparedStatement.executeQuery();
                 return getResult(resultSet);
-            } catch (Exception e) {
-                printException(e);
             } finally {
                 SQLExecutor.freeStatement(preparedStatement, resultSet);
                 if (autoClose) {
@@ -113,9 +247,9 @@ public class RunnableQuery {
         return def;
     }
 
-    public boolean find() {
-        this.resultNext = r -> true;
-        return run(false, false);
+    private boolean isMySQL(Connection connection) throws SQLException {
+        String name = connection.getMetaData().getDatabaseProductName().toLowerCase();
+        return name.contains("mysql") || name.contains("mariadb");
     }
 
     private void printException(Exception e) {
@@ -139,4 +273,51 @@ public class RunnableQuery {
             return null;
         }
     }
-}
\ No newline at end of file
+
+    class Cursor<T> extends Spliterators.AbstractSpliterator<T> {
+
+        private final Connection connection;
+        private final PreparedStatement preparedStatement;
+        private final ResultSet resultSet;
+        private final RowMapper<T> mapper;
+        private boolean closed;
+
+        Cursor(Connection connection, PreparedStatement preparedStatement, ResultSet resultSet, RowMapper<T> mapper) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED);
+            this.connection = connection;
+            this.preparedStatement = preparedStatement;
+            this.resultSet = resultSet;
+            this.mapper = mapper;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (closed) {
+                return false;
+            }
+            try {
+                if (resultSet.next()) {
+                    action.accept(mapper.map(resultSet));
+                    return true;
+                }
+            } catch (SQLException e) {
+                // 读取中途出错时不能当作读取完毕，否则调用者会得到不完整的结果
+                close();
+                printException(e);
+                throw new IllegalStateException("An exception occurred in the database. (" + query + ")", e);
+            }
+            close();
+            return false;
+        }
+
+        void close() {
+            if (!closed) {
+                closed = true;
+                SQLExecutor.freeStatement(preparedStatement, resultSet);
+                if (connection != null) {
+                    SQLExecutor.freeConnection(connection);
+                }
+            }
+        }
+    }
+}
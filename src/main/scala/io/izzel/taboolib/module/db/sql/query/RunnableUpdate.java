@@ -1,11 +1,15 @@
 package io.izzel.taboolib.module.db.sql.query;
 
+import io.izzel.taboolib.module.db.source.DBSource;
 import io.izzel.taboolib.module.locale.logger.TLogger;
 import io.izzel.taboolib.module.db.sql.SQLExecutor;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * F
@@ -19,6 +23,7 @@ public class RunnableUpdate {
     private TaskStatement statement;
     private Connection connection;
     private boolean autoClose;
+    private boolean callbackMainThread;
     private String query;
 
     public RunnableUpdate(String query) {
@@ -45,19 +50,57 @@ public class RunnableUpdate {
         return this;
     }
 
+    /**
+     * 异步更新完成后在主线程回调
+     */
+    public RunnableUpdate callbackMainThread() {
+        this.callbackMainThread = true;
+        return this;
+    }
+
+    /**
+     * 在数据源对应的线程池中执行，队列已满或更新出错时返回的 Future 以对应的异常结束
+     */
+    public CompletableFuture<Void> runAsync() {
+        CompletableFuture<Void> future;
+        try {
+            future = CompletableFuture.runAsync(() -> {
+                try {
+                    execute();
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, DBSource.getExecutor(dataSource));
+        } catch (RejectedExecutionException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        return callbackMainThread ? DBSource.toMainThread(future) : future;
+    }
+
     public void run() {
+        try {
+            execute();
+        } catch (Exception e) {
+            printException(e);
+        }
+    }
+
+    private void execute() throws Exception {
         PreparedStatement preparedStatement = null;
         if (dataSource != null) {
+            long time = System.nanoTime();
+            boolean failed = true;
             try (Connection connection = dataSource.getConnection()) {
                 preparedStatement = connection.prepareStatement(query);
                 if (statement != null) {
                     statement.execute(preparedStatement);
                 }
                 preparedStatement.executeUpdate();
-            } catch (Exception e) {
-                printException(e);
+                failed = false;
             } finally {
                 SQLExecutor.freeStatement(preparedStatement, null);
+                DBSource.recordQuery(dataSource, query, System.nanoTime() - time, failed);
             }
         } else if (connection != null) {
             try {
@@ -66,8 +109,6 @@ public class RunnableUpdate {
                     statement.execute(preparedStatement);
                 }
                 preparedStatement.executeUpdate();
-            } catch (Exception e) {
-                printException(e);
             } finally {
                 SQLExecutor.freeStatement(preparedStatement, null);
                 if (autoClose) {
@@ -3,6 +3,7 @@ package io.izzel.taboolib.module.db.sql.query;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.List;
 import java.util.stream.Collectors;
 
 public class Where {
@@ -80,28 +81,42 @@ public class Where {
     }
 
     public int toStatement(PreparedStatement statement, int index) throws SQLException {
-        if (between == null) {
+        if (in != null) {
+            for (int i = 0; i < in.length; i++) {
+                statement.setObject(index + i, in[i]);
+            }
+            return index + in.length;
+        } else if (between == null) {
             statement.setObject(index, value);
             return index + 1;
-        } else if (in == null) {
+        } else {
             statement.setObject(index, value);
             statement.setObject(index + 1, between);
             return index + 2;
-        } else {
-            for (int i = 0; i < in.length; i++) {
-                statement.setObject(index + i, in[i]);
-            }
-            return index + in.length;
         }
     }
 
     public String toQuery() {
-        if (between == null) {
+        if (in != null) {
+            return row + " in (" + Arrays.stream(in).map(i -> "?").collect(Collectors.joining(", ")) + ")";
+        } else if (between == null) {
             return row + " " + symbol + " ?";
-        } else if (in == null) {
+        } else {
             return row + " " + symbol + " ? and ?";
+        }
+    }
+
+    /**
+     * 语句结构：列名、符号及参数数量
+     */
+    void shape(List<Object> shape) {
+        shape.add(row);
+        if (in != null) {
+            shape.add("in");
+            shape.add(in.length);
         } else {
-            return row + " in (" + Arrays.stream(in).map(i -> "?").collect(Collectors.joining(", ")) + ")";
+            shape.add(symbol);
+            shape.add(between == null ? 1 : 2);
         }
     }
 }
\ No newline at end of file
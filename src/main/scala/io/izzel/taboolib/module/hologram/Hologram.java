@@ -1,5 +1,6 @@
 package io.izzel.taboolib.module.hologram;
 
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 import io.izzel.taboolib.TabooLib;
 import io.izzel.taboolib.module.nms.NMS;
@@ -9,7 +10,10 @@ import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.util.Vector;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Consumer;
 
@@ -19,9 +23,15 @@ import java.util.function.Consumer;
  */
 public class Hologram {
 
+    // 所有观察者使用相同的实体序号，以便共享数据包
+    private final int id = THologram.nextId();
+    private final HologramPackets packets = new HologramPackets(id);
     private Set<HologramViewer> viewers = Sets.newConcurrentHashSet();
+    private Map<String, HologramViewer> viewerMap = Maps.newConcurrentMap();
     private String text;
     private Location location;
+    // 在索引中的位置
+    private Location indexed;
     private boolean viewAll = false;
     private boolean deleted = false;
     private boolean autoDelete = false;
@@ -32,6 +42,8 @@ public class Hologram {
         THologram.getHolograms().add(this);
         this.text = text;
         this.location = location.clone();
+        this.indexed = this.location.clone();
+        THologram.getSpatialIndex().add(this, indexed);
         for (Player viewer : viewers) {
             addViewer(viewer);
         }
@@ -72,7 +84,8 @@ public class Hologram {
             return this;
         }
         if (viewAll) {
-            Bukkit.getOnlinePlayers().forEach(this::addViewer);
+            // 范围外的玩家在靠近时加入
+            Bukkit.getOnlinePlayers().stream().filter(this::isInRange).forEach(this::addViewer);
         }
         viewers.forEach(this::refresh);
         return this;
@@ -82,28 +95,56 @@ public class Hologram {
         if (deleted) {
             return this;
         }
-        viewer.setVisible(location.getWorld().equals(viewer.getPlayer().getWorld()) && location.distance(viewer.getPlayer().getLocation()) < viewDistance);
+        viewer.setVisible(isInRange(viewer.getPlayer()));
         if (viewer.isVisible()) {
             THologram.submit(() -> {
                 try {
+                    Object name = HologramPackets.share(packets.getName(text));
                     if (viewer.isSpawned()) {
-                        NMS.handle().sendPacketEntityTeleport(viewer.getPlayer(), viewer.getId(), location);
+                        NMS.handle().sendPacketEntityTeleport(viewer.getPlayer(), id, location);
+                        TPacketHandler.sendPackets(viewer.getPlayer(), Collections.singletonList(name));
                     } else {
                         viewer.setSpawned(true);
-                        TPacketHandler.sendPacket(viewer.getPlayer(), THologramHandler.copy(viewer.getId(), location).get());
-                        TPacketHandler.sendPacket(viewer.getPlayer(), THologramHandler.copy(viewer.getId()).get());
+                        TPacketHandler.sendPackets(viewer.getPlayer(), Arrays.asList(packets.getSpawn(location), packets.getInit(), name));
                     }
-                    TPacketHandler.sendPacket(viewer.getPlayer(), THologramHandler.copy(viewer.getId(), text).get());
                 } catch (Throwable t) {
                     t.printStackTrace();
                 }
             });
-        } else {
+        } else if (viewer.isSpawned()) {
             destroy(viewer);
         }
         return this;
     }
 
+    /**
+     * 只在可见状态变化时发送数据包，离开范围的玩家不再作为对所有人可见的全息的观察者
+     */
+    void update(HologramViewer viewer) {
+        if (deleted) {
+            return;
+        }
+        if (isInRange(viewer.getPlayer())) {
+            if (!viewer.isSpawned()) {
+                refresh(viewer);
+            }
+        } else {
+            if (viewer.isSpawned()) {
+                destroy(viewer);
+            }
+            viewer.setVisible(false);
+            if (viewAll && viewerMap.remove(viewer.getPlayer().getName(), viewer)) {
+                viewers.remove(viewer);
+                THologram.removeViewing(viewer.getPlayer(), this);
+            }
+        }
+    }
+
+    public boolean isInRange(Player player) {
+        Location target = player.getLocation();
+        return location.getWorld().equals(target.getWorld()) && location.distanceSquared(target) < (double) viewDistance * viewDistance;
+    }
+
     public Hologram flash(List<String> text, int period) {
         for (int i = 0; i < text.size(); i++) {
             String line = text.get(i);
@@ -119,7 +160,9 @@ public class Hologram {
         this.text = text;
         THologram.submit(() -> {
             try {
-                viewers.forEach(v -> TPacketHandler.sendPacket(v.getPlayer(), THologramHandler.copy(v.getId(), text).get()));
+                // 所有观察者共享同一个数据包，并在本刻结束时与其他数据包合并发送
+                Object name = packets.getName(text);
+                viewers.stream().filter(HologramViewer::isSpawned).forEach(v -> TPacketHandler.sendPacketBuffered(v.getPlayer(), HologramPackets.share(name)));
             } catch (Throwable t) {
                 t.printStackTrace();
             }
@@ -139,9 +182,10 @@ public class Hologram {
             return this;
         }
         this.location = location.clone();
+        reindex();
         THologram.submit(() -> {
             try {
-                viewers.forEach(v -> NMS.handle().sendPacketEntityTeleport(v.getPlayer(), v.getId(), location));
+                viewers.forEach(v -> NMS.handle().sendPacketEntityTeleport(v.getPlayer(), id, location));
             } catch (Throwable t) {
                 t.printStackTrace();
             }
@@ -152,6 +196,9 @@ public class Hologram {
     public Hologram delete() {
         destroy();
         deleted = true;
+        unindex();
+        // 在全息线程中释放，保证已提交的发送先完成
+        THologram.submit(packets::release);
         return this;
     }
 
@@ -175,7 +222,7 @@ public class Hologram {
         viewer.setSpawned(false);
         THologram.submit(() -> {
             try {
-                NMS.handle().sendPacketEntityDestroy(viewer.getPlayer(), viewer.getId());
+                NMS.handle().sendPacketEntityDestroy(viewer.getPlayer(), id);
             } catch (Throwable t) {
                 t.printStackTrace();
             }
@@ -188,9 +235,12 @@ public class Hologram {
             return this;
         }
         if (!isViewer(player)) {
-            HologramViewer viewer = new HologramViewer(player);
-            viewers.add(viewer);
-            refresh(viewer);
+            HologramViewer viewer = new HologramViewer(player, id);
+            if (viewerMap.putIfAbsent(player.getName(), viewer) == null) {
+                viewers.add(viewer);
+                THologram.addViewing(player, this);
+                refresh(viewer);
+            }
         }
         return this;
     }
@@ -204,6 +254,8 @@ public class Hologram {
             return this;
         }
         viewers.remove(viewer);
+        viewerMap.remove(player.getName(), viewer);
+        THologram.removeViewing(player, this);
         destroy(viewer);
         if (viewers.isEmpty()) {
             deleted = autoDelete;
@@ -216,17 +268,31 @@ public class Hologram {
             return this;
         }
         destroy();
+        viewers.forEach(viewer -> THologram.removeViewing(viewer.getPlayer(), this));
         viewers.clear();
+        viewerMap.clear();
         deleted = autoDelete;
         return this;
     }
 
     public boolean isViewer(Player player) {
-        return viewers.stream().anyMatch(i -> i.getPlayer().getName().equals(player.getName()));
+        return viewerMap.containsKey(player.getName());
     }
 
     public HologramViewer getViewer(Player player) {
-        return viewers.stream().filter(i -> i.getPlayer().getName().equals(player.getName())).findFirst().orElse(null);
+        return viewerMap.get(player.getName());
+    }
+
+    void reindex() {
+        if (!deleted) {
+            Location to = location.clone();
+            THologram.getSpatialIndex().move(this, indexed, to);
+            indexed = to;
+        }
+    }
+
+    void unindex() {
+        THologram.getSpatialIndex().remove(this, indexed);
     }
 
     // *********************************
@@ -235,6 +301,10 @@ public class Hologram {
     //
     // *********************************
 
+    public int getId() {
+        return id;
+    }
+
     public Set<HologramViewer> getViewers() {
         return viewers;
     }
@@ -273,9 +343,11 @@ public class Hologram {
 
     public void setLocation(Location location) {
         this.location = location;
+        reindex();
     }
 
     public void setViewDistance(int viewDistance) {
         this.viewDistance = viewDistance;
+        THologram.updateViewDistance(viewDistance);
     }
 }
@@ -0,0 +1,68 @@
+package io.izzel.taboolib.module.hologram;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.bukkit.Location;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 按世界与区块索引全息
+ *
+ * @Since 2026-10-18 22:50
+ */
+class HologramIndex {
+
+    private final Map<String, Map<Long, Set<Hologram>>> worlds = Maps.newConcurrentMap();
+
+    public void add(Hologram hologram, Location location) {
+        worlds.computeIfAbsent(location.getWorld().getName(), name -> Maps.newConcurrentMap())
+                .computeIfAbsent(key(location.getBlockX() >> 4, location.getBlockZ() >> 4), key -> Sets.newConcurrentHashSet())
+                .add(hologram);
+    }
+
+    public void remove(Hologram hologram, Location location) {
+        Map<Long, Set<Hologram>> chunks = worlds.get(location.getWorld().getName());
+        if (chunks != null) {
+            chunks.computeIfPresent(key(location.getBlockX() >> 4, location.getBlockZ() >> 4), (key, holograms) -> {
+                holograms.remove(hologram);
+                return holograms.isEmpty() ? null : holograms;
+            });
+        }
+    }
+
+    public void move(Hologram hologram, Location from, Location to) {
+        if (from.getWorld().equals(to.getWorld()) && from.getBlockX() >> 4 == to.getBlockX() >> 4 && from.getBlockZ() >> 4 == to.getBlockZ() >> 4) {
+            return;
+        }
+        remove(hologram, from);
+        add(hologram, to);
+    }
+
+    /**
+     * 遍历 distance 范围内所有区块中的全息，结果可能包含范围外的全息
+     */
+    public void forEachNearby(Location center, int distance, Consumer<Hologram> consumer) {
+        Map<Long, Set<Hologram>> chunks = worlds.get(center.getWorld().getName());
+        if (chunks == null || chunks.isEmpty()) {
+            return;
+        }
+        int radius = (distance >> 4) + 1;
+        int x = center.getBlockX() >> 4;
+        int z = center.getBlockZ() >> 4;
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                Set<Hologram> holograms = chunks.get(key(x + dx, z + dz));
+                if (holograms != null) {
+                    holograms.forEach(consumer);
+                }
+            }
+        }
+    }
+
+    private static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,94 @@
+package io.izzel.taboolib.module.hologram;
+
+import io.izzel.taboolib.TabooLib;
+import io.izzel.taboolib.module.packet.TPacketHandler;
+import io.netty.buffer.ByteBuf;
+import org.bukkit.Location;
+
+/**
+ * 全息的数据包模板
+ * 同一全息对所有观察者使用相同的实体序号，因此数据包只在位置或文本变化时生成一次，由所有观察者共享
+ * 开启 HOLOGRAM-PRESERIALIZE 后文本数据包会预先编码，发送时直接写入连接（不经过数据包监听器）
+ *
+ * @Since 2026-10-18 23:20
+ */
+class HologramPackets {
+
+    private static Boolean preserialize;
+
+    private final int id;
+    private Location spawnLocation;
+    private Object spawn;
+    private Object init;
+    private String nameText;
+    private Object name;
+
+    HologramPackets(int id) {
+        this.id = id;
+    }
+
+    synchronized Object getSpawn(Location location) {
+        if (spawn == null || !location.equals(spawnLocation)) {
+            spawn = THologramHandler.copy(id, location).get();
+            spawnLocation = location.clone();
+        }
+        return spawn;
+    }
+
+    synchronized Object getInit() {
+        if (init == null) {
+            init = THologramHandler.copy(id).get();
+        }
+        return init;
+    }
+
+    /**
+     * 预编码的数据包在每次发送时需要通过 {@link #share(Object)} 获取副本
+     */
+    synchronized Object getName(String text) {
+        if (name == null || !text.equals(nameText)) {
+            release(name);
+            Object packet = THologramHandler.copy(id, text).get();
+            name = isPreserialize() ? serialize(packet) : packet;
+            nameText = text;
+        }
+        return name;
+    }
+
+    synchronized void release() {
+        release(name);
+        spawn = null;
+        init = null;
+        name = null;
+    }
+
+    /**
+     * 预编码的数据在写入后会被释放一次，因此每次发送前增加引用
+     */
+    static Object share(Object packet) {
+        return packet instanceof ByteBuf ? ((ByteBuf) packet).duplicate().retain() : packet;
+    }
+
+    private static Object serialize(Object packet) {
+        ByteBuf buf = TPacketHandler.serialize(packet);
+        if (buf == null) {
+            // 当前版本不支持
+            preserialize = false;
+            return packet;
+        }
+        return buf;
+    }
+
+    private static void release(Object packet) {
+        if (packet instanceof ByteBuf) {
+            ((ByteBuf) packet).release();
+        }
+    }
+
+    private static boolean isPreserialize() {
+        if (preserialize == null) {
+            preserialize = TabooLib.getConfig().getBoolean("HOLOGRAM-PRESERIALIZE", false);
+        }
+        return preserialize;
+    }
+}
@@ -15,13 +15,12 @@ public class HologramViewer {
     private boolean spawned;
     private boolean visible;
 
-    HologramViewer(Player player) {
-        this.id = THologram.nextIndex(player);
+    HologramViewer(Player player, int id) {
+        this.id = id;
         this.player = player;
     }
 
     public void setVisible(boolean visible) {
-        this.spawned = false;
         this.visible = visible;
     }
 
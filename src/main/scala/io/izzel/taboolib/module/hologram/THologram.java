@@ -2,15 +2,19 @@ package io.izzel.taboolib.module.hologram;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import io.izzel.taboolib.module.inject.PlayerContainer;
 import io.izzel.taboolib.module.inject.TSchedule;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @Author sky
@@ -23,11 +27,22 @@ public class THologram {
     @PlayerContainer
     private static Map<String, Integer> index = Maps.newConcurrentMap();
     private static List<Hologram> holograms = Lists.newCopyOnWriteArrayList();
+    // 玩家作为观察者的全息
+    @PlayerContainer
+    private static Map<String, Set<Hologram>> viewing = Maps.newConcurrentMap();
+    private static HologramIndex spatialIndex = new HologramIndex();
+    private static AtomicInteger nextId = new AtomicInteger(449599702);
+    private static volatile int maxViewDistance = 50;
 
     public static List<Hologram> getHolograms() {
         return holograms;
     }
 
+    public static int nextId() {
+        return nextId.getAndIncrement();
+    }
+
+    @Deprecated
     public static int nextIndex(Player player) {
         return index.put(player.getName(), index.computeIfAbsent(player.getName(), e -> 449599702) + 1);
     }
@@ -42,24 +57,81 @@ public class THologram {
 
     @TSchedule(period = 100, async = true)
     public static void release() {
-        holograms.removeIf(Hologram::isDeleted);
+        holograms.removeIf(hologram -> {
+            if (hologram.isDeleted()) {
+                hologram.unindex();
+                return true;
+            }
+            return false;
+        });
+        viewing.values().forEach(set -> set.removeIf(Hologram::isDeleted));
     }
 
     public static void remove(Player player) {
-        holograms.forEach(hologram -> hologram.removeViewer(player));
+        getViewing(player).forEach(hologram -> hologram.removeViewer(player));
     }
 
+    /**
+     * 只处理玩家正在观察的全息与附近对所有人可见的全息
+     */
     public static void refresh(Player player) {
-        for (Hologram hologram : holograms) {
+        Set<Hologram> candidates = Sets.newHashSet(getViewing(player));
+        spatialIndex.forEachNearby(player.getLocation(), maxViewDistance, hologram -> {
+            if (hologram.isViewAll()) {
+                candidates.add(hologram);
+            }
+        });
+        for (Hologram hologram : candidates) {
+            if (hologram.isDeleted()) {
+                continue;
+            }
             HologramViewer viewer = hologram.getViewer(player);
             if (viewer != null) {
-                hologram.refresh(viewer);
+                hologram.update(viewer);
             } else if (hologram.isViewAll()) {
                 hologram.addViewer(player);
             }
         }
     }
 
+    /**
+     * 切换世界或重生后客户端会清除所有实体，需要重新生成
+     */
+    public static void reset(Player player) {
+        getViewing(player).forEach(hologram -> {
+            HologramViewer viewer = hologram.getViewer(player);
+            if (viewer != null) {
+                viewer.setSpawned(false);
+            }
+        });
+        refresh(player);
+    }
+
+    public static Set<Hologram> getViewing(Player player) {
+        return viewing.getOrDefault(player.getName(), Collections.emptySet());
+    }
+
+    static void addViewing(Player player, Hologram hologram) {
+        viewing.computeIfAbsent(player.getName(), name -> Sets.newConcurrentHashSet()).add(hologram);
+    }
+
+    static void removeViewing(Player player, Hologram hologram) {
+        Set<Hologram> set = viewing.get(player.getName());
+        if (set != null) {
+            set.remove(hologram);
+        }
+    }
+
+    static HologramIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
+    static void updateViewDistance(int viewDistance) {
+        if (viewDistance > maxViewDistance) {
+            maxViewDistance = viewDistance;
+        }
+    }
+
     public static void submit(Runnable runnable) {
         executorService.submit(() -> {
             if (THologramHandler.isLearned()) {
@@ -6,9 +6,9 @@ import io.izzel.taboolib.TabooLib;
 import io.izzel.taboolib.Version;
 import io.izzel.taboolib.module.inject.TListener;
 import io.izzel.taboolib.module.inject.TSchedule;
-import io.izzel.taboolib.module.lite.SimpleReflection;
 import io.izzel.taboolib.module.nms.NMS;
 import io.izzel.taboolib.module.packet.Packet;
+import io.izzel.taboolib.module.packet.PacketAccessor;
 import io.izzel.taboolib.module.packet.TPacket;
 import io.izzel.taboolib.util.Ref;
 import org.bukkit.Bukkit;
@@ -16,6 +16,7 @@ import org.bukkit.Location;
 import org.bukkit.entity.ArmorStand;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.*;
 import org.bukkit.scheduler.BukkitRunnable;
@@ -48,8 +49,8 @@ class THologramHandler implements Listener {
             TabooLib.getPlugin().runTask(() -> learn(player));
         }
         if (packet.is("PacketPlayInUseEntity")) {
-            int id = packet.read("a", Integer.TYPE);
-            for (Hologram hologram : THologram.getHolograms()) {
+            int id = packet.readInt("a");
+            for (Hologram hologram : THologram.getViewing(player)) {
                 HologramViewer viewer = hologram.getViewer(player);
                 if (viewer != null && viewer.getId() == id) {
                     hologram.getEvent().accept(player);
@@ -114,37 +115,26 @@ class THologramHandler implements Listener {
         List copy = Lists.newArrayList();
         List item = THologramHandler.getPacketName().read("b", List.class);
         for (Object element : item) {
-            SimpleReflection.checkAndSave(element.getClass());
-            if (Version.isAfter(Version.v1_9)) {
-                Object a = SimpleReflection.getFieldValue(element.getClass(), element, "a");
-                Object c = SimpleReflection.getFieldValue(element.getClass(), element, "c");
-                try {
-                    Object i = Ref.getUnsafe().allocateInstance(element.getClass());
-                    SimpleReflection.setFieldValue(element.getClass(), i, "a", a);
-                    SimpleReflection.setFieldValue(element.getClass(), i, "c", c);
+            PacketAccessor accessor = PacketAccessor.of(element.getClass());
+            try {
+                Object i = Ref.getUnsafe().allocateInstance(element.getClass());
+                if (Version.isAfter(Version.v1_9)) {
+                    accessor.getField("a").set(i, accessor.getField("a").get(element));
+                    accessor.getField("c").set(i, accessor.getField("c").get(element));
                     if (Version.isAfter(Version.v1_14)) {
-                        SimpleReflection.setFieldValue(element.getClass(), i, "b", Optional.of(NMS.handle().ofChatComponentText(name)));
+                        accessor.getField("b").set(i, Optional.of(NMS.handle().ofChatComponentText(name)));
                     } else {
-                        SimpleReflection.setFieldValue(element.getClass(), i, "b", name);
+                        accessor.getField("b").set(i, name);
                     }
-                    copy.add(i);
-                } catch (InstantiationException e) {
-                    e.printStackTrace();
-                }
-            } else {
-                Object a = SimpleReflection.getFieldValue(element.getClass(), element, "a");
-                Object b = SimpleReflection.getFieldValue(element.getClass(), element, "b");
-                Object d = SimpleReflection.getFieldValue(element.getClass(), element, "d");
-                try {
-                    Object i = Ref.getUnsafe().allocateInstance(element.getClass());
-                    SimpleReflection.setFieldValue(element.getClass(), i, "a", a);
-                    SimpleReflection.setFieldValue(element.getClass(), i, "b", b);
-                    SimpleReflection.setFieldValue(element.getClass(), i, "c", name);
-                    SimpleReflection.setFieldValue(element.getClass(), i, "d", d);
-                    copy.add(i);
-                } catch (InstantiationException e) {
-                    e.printStackTrace();
+                } else {
+                    accessor.getField("a").set(i, accessor.getField("a").get(element));
+                    accessor.getField("b").set(i, accessor.getField("b").get(element));
+                    accessor.getField("c").set(i, name);
+                    accessor.getField("d").set(i, accessor.getField("d").get(element));
                 }
+                copy.add(i);
+            } catch (InstantiationException e) {
+                e.printStackTrace();
             }
         }
         packet.write("b", copy);
@@ -203,12 +193,36 @@ class THologramHandler implements Listener {
 
     @EventHandler
     public void e(PlayerTeleportEvent e) {
-        THologram.refresh(e.getPlayer());
+        refreshLater(e.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void e(PlayerMoveEvent e) {
+        // 只在跨越区块时刷新
+        if (e.getFrom().getBlockX() >> 4 != e.getTo().getBlockX() >> 4 || e.getFrom().getBlockZ() >> 4 != e.getTo().getBlockZ() >> 4) {
+            refreshLater(e.getPlayer());
+        }
+    }
+
+    /**
+     * 移动与传送事件期间玩家仍处于原位置
+     */
+    private static void refreshLater(Player player) {
+        TabooLib.getPlugin().runTask(() -> {
+            if (player.isOnline()) {
+                THologram.refresh(player);
+            }
+        });
     }
 
     @EventHandler
     public void e(PlayerChangedWorldEvent e) {
-        THologram.refresh(e.getPlayer());
+        THologram.reset(e.getPlayer());
+    }
+
+    @EventHandler
+    public void e(PlayerRespawnEvent e) {
+        TabooLib.getPlugin().runTask(() -> THologram.reset(e.getPlayer()));
     }
 
     @TSchedule(period = 200, async = true)
@@ -4,14 +4,21 @@ import io.izzel.taboolib.TabooLibAPI;
 import io.izzel.taboolib.TabooLibLoader;
 import io.izzel.taboolib.Version;
 import io.izzel.taboolib.module.locale.logger.TLogger;
+import io.izzel.taboolib.module.profiler.HandlerProfiler;
+import io.izzel.taboolib.module.profiler.HandlerStats;
 import io.izzel.taboolib.cronus.util.StringExpression;
 import io.izzel.taboolib.util.Strings;
 import io.izzel.taboolib.util.Reflection;
 import org.bukkit.Bukkit;
+import org.bukkit.event.Cancellable;
+import org.bukkit.event.Event;
+import org.bukkit.event.EventException;
+import org.bukkit.event.EventHandler;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.plugin.Plugin;
 
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -116,12 +123,61 @@ public class TListenerHandler {
                     }
                 }
                 // 注册监听
-                Bukkit.getPluginManager().registerEvents(listener, plugin);
+                if (HandlerProfiler.isEnabled()) {
+                    registerProfiled(listener, plugin);
+                } else {
+                    Bukkit.getPluginManager().registerEvents(listener, plugin);
+                }
                 TabooLibAPI.debug("Listener " + listener.getClass().getSimpleName() + " registered. (" + plugin.getName() + ")");
             }
         });
     }
 
+    /**
+     * 逐个注册监听方法并记录耗时
+     * 与 Bukkit 的 registerEvents 相同，处理类及父类中所有带有 EventHandler 注解的公开方法与类中声明的方法
+     */
+    private static void registerProfiled(Listener listener, Plugin plugin) {
+        Set<Method> methods = new HashSet<>(Arrays.asList(listener.getClass().getMethods()));
+        methods.addAll(Arrays.asList(listener.getClass().getDeclaredMethods()));
+        for (Method method : methods) {
+            EventHandler eventHandler = method.getAnnotation(EventHandler.class);
+            if (eventHandler == null || method.isBridge() || method.isSynthetic() || method.getParameterCount() != 1 || !Event.class.isAssignableFrom(method.getParameterTypes()[0])) {
+                continue;
+            }
+            Class<? extends Event> eventClass = method.getParameterTypes()[0].asSubclass(Event.class);
+            HandlerStats stats = HandlerProfiler.getStats(HandlerProfiler.EVENT, plugin.getName(), listener.getClass().getName() + "#" + method.getName() + "(" + eventClass.getSimpleName() + ")");
+            method.setAccessible(true);
+            Bukkit.getPluginManager().registerEvent(eventClass, listener, eventHandler.priority(), (l, event) -> {
+                if (!eventClass.isInstance(event)) {
+                    return;
+                }
+                if (!HandlerProfiler.isEnabled()) {
+                    invoke(method, l, event);
+                    return;
+                }
+                boolean cancelled = event instanceof Cancellable && ((Cancellable) event).isCancelled();
+                long allocated = HandlerProfiler.getAllocatedBytes();
+                long time = System.nanoTime();
+                try {
+                    invoke(method, l, event);
+                } finally {
+                    stats.record(System.nanoTime() - time, HandlerProfiler.getAllocatedBytes() - allocated, !cancelled && event instanceof Cancellable && ((Cancellable) event).isCancelled());
+                }
+            }, plugin, eventHandler.ignoreCancelled());
+        }
+    }
+
+    private static void invoke(Method method, Listener listener, Event event) throws EventException {
+        try {
+            method.invoke(listener, event);
+        } catch (InvocationTargetException e) {
+            throw new EventException(e.getCause());
+        } catch (Throwable t) {
+            throw new EventException(t);
+        }
+    }
+
     /**
      * 注销所有插件的所有监听器
      */
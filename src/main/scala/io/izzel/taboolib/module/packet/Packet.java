@@ -1,7 +1,5 @@
 package io.izzel.taboolib.module.packet;
 
-import io.izzel.taboolib.module.lite.SimpleReflection;
-
 import java.util.Arrays;
 
 /**
@@ -12,11 +10,12 @@ public class Packet {
 
     private Object origin;
     private Class<?> packetClass;
+    private PacketAccessor accessor;
 
     public Packet(Object origin) {
         this.origin = origin;
         this.packetClass = origin.getClass();
-        SimpleReflection.checkAndSave(this.packetClass);
+        this.accessor = PacketAccessor.of(this.packetClass);
     }
 
     public boolean is(Class<?> packetClass) {
@@ -36,20 +35,77 @@ public class Packet {
     }
 
     public Object read(String key) {
-        return SimpleReflection.getFieldValue(this.packetClass, origin, key);
+        PacketAccessor.FieldAccessor field = accessor.getField(key);
+        if (field == null) {
+            return null;
+        }
+        try {
+            return field.get(origin);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return null;
     }
 
     public <T> T read(String key, T def) {
-        return SimpleReflection.getFieldValue(this.packetClass, origin, key, def);
+        PacketAccessor.FieldAccessor field = accessor.getField(key);
+        if (field == null) {
+            return null;
+        }
+        try {
+            return (T) field.get(origin);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return def;
     }
 
     public <T> T read(String key, Class<? extends T> type) {
-        Object value = SimpleReflection.getFieldValue(this.packetClass, origin, key);
+        Object value = read(key);
         return value == null ? null : (T) value;
     }
 
+    /**
+     * 以下方法读取基本类型字段时不会装箱，字段不存在或类型不符时抛出 IllegalArgumentException
+     */
+    public int readInt(String key) {
+        return getField(key).getInt(origin);
+    }
+
+    public long readLong(String key) {
+        return getField(key).getLong(origin);
+    }
+
+    public double readDouble(String key) {
+        return getField(key).getDouble(origin);
+    }
+
+    public float readFloat(String key) {
+        return getField(key).getFloat(origin);
+    }
+
+    public short readShort(String key) {
+        return getField(key).getShort(origin);
+    }
+
+    public byte readByte(String key) {
+        return getField(key).getByte(origin);
+    }
+
+    public boolean readBoolean(String key) {
+        return getField(key).getBoolean(origin);
+    }
+
     public void write(String key, Object value) {
-        SimpleReflection.setFieldValue(this.packetClass, origin, key, value);
+        PacketAccessor.FieldAccessor field = accessor.getField(key);
+        if (field == null || value == null) {
+            return;
+        }
+        try {
+            field.set(origin, value);
+        } catch (Throwable e) {
+            e.printStackTrace();
+        }
     }
 
     public Packet copy(String... copyField) {
@@ -67,8 +123,20 @@ public class Packet {
             t.printStackTrace();
             return null;
         }
-        for (String field : copyField) {
-            SimpleReflection.setFieldValue(clazz, packet, field, SimpleReflection.getFieldValue(clazz, origin, field));
+        PacketAccessor accessor = PacketAccessor.of(clazz);
+        for (String name : copyField) {
+            PacketAccessor.FieldAccessor field = accessor.getField(name);
+            if (field == null) {
+                continue;
+            }
+            try {
+                Object value = field.get(origin);
+                if (value != null) {
+                    field.set(packet, value);
+                }
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
         }
         return new Packet(packet);
     }
@@ -76,4 +144,16 @@ public class Packet {
     public Object get() {
         return origin;
     }
+
+    public PacketAccessor getAccessor() {
+        return accessor;
+    }
+
+    private PacketAccessor.FieldAccessor getField(String key) {
+        PacketAccessor.FieldAccessor field = accessor.getField(key);
+        if (field == null) {
+            throw new IllegalArgumentException(packetClass.getSimpleName() + "." + key + " not found");
+        }
+        return field;
+    }
 }
@@ -0,0 +1,194 @@
+package io.izzel.taboolib.module.packet;
+
+import com.google.common.collect.ImmutableMap;
+import io.izzel.taboolib.util.Ref;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.WrongMethodTypeException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+
+/**
+ * 数据包字段访问表
+ * 每个数据包类型在首次使用时生成一次，之后只读，可在 Netty 线程中直接使用
+ * 字段读取通过 MethodHandle 完成，基本类型字段可以通过 readInt 等方法在不装箱的情况下读取
+ *
+ * @Since 2026-10-18 21:10
+ */
+public class PacketAccessor {
+
+    private static final ClassValue<PacketAccessor> accessors = new ClassValue<PacketAccessor>() {
+        @Override
+        protected PacketAccessor computeValue(Class<?> type) {
+            return new PacketAccessor(type);
+        }
+    };
+
+    private final Class<?> packetClass;
+    private final Map<String, FieldAccessor> fields;
+
+    PacketAccessor(Class<?> packetClass) {
+        this.packetClass = packetClass;
+        ImmutableMap.Builder<String, FieldAccessor> builder = ImmutableMap.builder();
+        for (Field field : packetClass.getDeclaredFields()) {
+            try {
+                builder.put(field.getName(), new FieldAccessor(field));
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }
+        this.fields = builder.build();
+    }
+
+    public static PacketAccessor of(Class<?> packetClass) {
+        return accessors.get(packetClass);
+    }
+
+    public Class<?> getPacketClass() {
+        return packetClass;
+    }
+
+    public FieldAccessor getField(String name) {
+        return fields.get(name);
+    }
+
+    public Map<String, FieldAccessor> getFields() {
+        return fields;
+    }
+
+    public static class FieldAccessor {
+
+        private final Field field;
+        private final MethodHandle getter;
+        private final MethodHandle intGetter;
+        private final MethodHandle longGetter;
+        private final MethodHandle doubleGetter;
+        private final MethodHandle floatGetter;
+        private final MethodHandle shortGetter;
+        private final MethodHandle byteGetter;
+        private final MethodHandle booleanGetter;
+
+        FieldAccessor(Field field) throws IllegalAccessException {
+            this.field = field;
+            MethodHandle handle = Ref.lookup().unreflectGetter(field);
+            // 静态字段同样以 (Object) 的形式调用
+            if (Modifier.isStatic(field.getModifiers())) {
+                handle = MethodHandles.dropArguments(handle, 0, Object.class);
+            }
+            handle = handle.asType(MethodType.methodType(field.getType(), Object.class));
+            this.getter = handle.asType(MethodType.methodType(Object.class, Object.class));
+            this.intGetter = typed(handle, int.class);
+            this.longGetter = typed(handle, long.class);
+            this.doubleGetter = typed(handle, double.class);
+            this.floatGetter = typed(handle, float.class);
+            this.shortGetter = typed(handle, short.class);
+            this.byteGetter = typed(handle, byte.class);
+            this.booleanGetter = typed(handle, boolean.class);
+        }
+
+        public Field getField() {
+            return field;
+        }
+
+        public Class<?> getType() {
+            return field.getType();
+        }
+
+        public Object get(Object instance) {
+            try {
+                return getter.invokeExact(instance);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public void set(Object instance, Object value) {
+            Ref.putField(instance, field, value);
+        }
+
+        public int getInt(Object instance) {
+            try {
+                return (int) check(intGetter, int.class).invokeExact(instance);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public long getLong(Object instance) {
+            try {
+                return (long) check(longGetter, long.class).invokeExact(instance);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public double getDouble(Object instance) {
+            try {
+                return (double) check(doubleGetter, double.class).invokeExact(instance);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public float getFloat(Object instance) {
+            try {
+                return (float) check(floatGetter, float.class).invokeExact(instance);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public short getShort(Object instance) {
+            try {
+                return (short) check(shortGetter, short.class).invokeExact(instance);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public byte getByte(Object instance) {
+            try {
+                return (byte) check(byteGetter, byte.class).invokeExact(instance);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        public boolean getBoolean(Object instance) {
+            try {
+                return (boolean) check(booleanGetter, boolean.class).invokeExact(instance);
+            } catch (Throwable t) {
+                throw rethrow(t);
+            }
+        }
+
+        private MethodHandle check(MethodHandle handle, Class<?> type) {
+            if (handle == null) {
+                throw new IllegalArgumentException(field.getDeclaringClass().getSimpleName() + "." + field.getName() + " (" + field.getType().getName() + ") cannot be read as " + type.getName());
+            }
+            return handle;
+        }
+
+        private RuntimeException rethrow(Throwable t) {
+            return t instanceof RuntimeException ? (RuntimeException) t : new IllegalStateException(t);
+        }
+
+        /**
+         * 只允许基本类型之间的拓宽转换（如 short 读取为 int），不允许拆箱
+         */
+        private static MethodHandle typed(MethodHandle handle, Class<?> type) {
+            Class<?> fieldType = handle.type().returnType();
+            if (!fieldType.isPrimitive()) {
+                return null;
+            }
+            try {
+                return handle.asType(MethodType.methodType(type, Object.class));
+            } catch (WrongMethodTypeException e) {
+                return null;
+            }
+        }
+    }
+}
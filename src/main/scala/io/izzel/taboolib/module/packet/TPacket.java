@@ -15,6 +15,17 @@ public @interface TPacket {
 
     Type type();
 
+    /**
+     * 监听的数据包名称（如 PacketPlayOutChat），留空则监听所有数据包
+     */
+    String[] packets() default {};
+
+    /**
+     * 是否在异步线程中执行，同一玩家的数据包按顺序处理
+     * 异步监听器只能观察数据包，返回值将被忽略
+     */
+    boolean async() default false;
+
     enum Type {
 
         SEND, RECEIVE
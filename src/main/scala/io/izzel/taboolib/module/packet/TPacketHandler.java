@@ -2,21 +2,38 @@ package io.izzel.taboolib.module.packet;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import io.izzel.taboolib.TabooLib;
 import io.izzel.taboolib.module.inject.TInject;
+import io.izzel.taboolib.module.inject.TFunction;
 import io.izzel.taboolib.module.inject.TListener;
+import io.izzel.taboolib.module.inject.TSchedule;
+import io.izzel.taboolib.module.locale.logger.TLogger;
 import io.izzel.taboolib.module.packet.channel.ChannelExecutor;
+import io.izzel.taboolib.module.profiler.HandlerProfiler;
+import io.netty.buffer.ByteBuf;
+import io.netty.util.ReferenceCountUtil;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.server.PluginDisableEvent;
 import org.bukkit.plugin.Plugin;
 
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * @Author 坏黑
@@ -27,9 +44,40 @@ public class TPacketHandler implements Listener {
 
     @TInject(asm = "io.izzel.taboolib.module.packet.channel.InternalChannelExecutor")
     private static ChannelExecutor channelExecutor;
-    private static Map<String, List<TPacketListener>> packetListeners = Maps.newHashMap();
+    private static Map<String, List<TPacketListener>> packetListeners = Maps.newConcurrentMap();
+    // 数据包类型 -> 监听器，首次遇到该类型时生成，监听器变动时整体重建
+    private static volatile Map<Class<?>, TPacketListener[]> sendListeners = new ConcurrentHashMap<>();
+    private static volatile Map<Class<?>, TPacketListener[]> receiveListeners = new ConcurrentHashMap<>();
+    private static final TPacketListener[] EMPTY = new TPacketListener[0];
+    // 等待在本刻结束时发送的数据包
+    private static Map<UUID, Queue<Object>> packetBuffers = Maps.newConcurrentMap();
+    private static long budget = -1;
 
-    @EventHandler
+    @TFunction.Init
+    static void init() {
+        if (!channelExecutor.addServerChannels()) {
+            // 服务器尚未开始监听端口
+            Bukkit.getScheduler().runTask(TabooLib.getPlugin(), () -> channelExecutor.addServerChannels());
+        }
+        Bukkit.getOnlinePlayers().forEach(channelExecutor::addPlayerChannel);
+    }
+
+    @TFunction.Cancel
+    static void cancel() {
+        channelExecutor.removeServerChannels();
+        Bukkit.getOnlinePlayers().forEach(channelExecutor::removePlayerChannel);
+        channelExecutor.shutdownAsyncService();
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onLogin(PlayerLoginEvent e) {
+        channelExecutor.bindPlayer(e.getPlayer());
+    }
+
+    /**
+     * 通常已在登录时注入，此处用于补充注入失败的情况
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
     public void onJoin(PlayerJoinEvent e) {
         channelExecutor.addPlayerChannel(e.getPlayer());
     }
@@ -37,6 +85,7 @@ public class TPacketHandler implements Listener {
     @EventHandler
     public void onQuit(PlayerQuitEvent e) {
         channelExecutor.removePlayerChannel(e.getPlayer());
+        release(packetBuffers.remove(e.getPlayer().getUniqueId()));
     }
 
     @EventHandler
@@ -48,19 +97,150 @@ public class TPacketHandler implements Listener {
         channelExecutor.sendPacket(player, packet);
     }
 
+    /**
+     * 将数据包预先编码，编码结果可以通过 sendPackets 或 sendPacketBuffered 发送，当前版本不支持时返回 null
+     * 预编码的数据包不会经过数据包监听器，每次发送都会释放一次引用
+     */
+    public static ByteBuf serialize(Object packet) {
+        return channelExecutor.serialize(packet);
+    }
+
+    /**
+     * 发送多个数据包，所有数据包写入后只刷新一次连接
+     */
+    public static void sendPackets(Player player, Collection<?> packets) {
+        for (Object packet : packets) {
+            if (!channelExecutor.isPacket(packet)) {
+                TLogger.getGlobalLogger().warn("Invalid packet: " + packet.getClass().getName());
+                packets = packets.stream().filter(channelExecutor::isPacket).collect(Collectors.toList());
+                break;
+            }
+        }
+        channelExecutor.sendPackets(player, packets);
+    }
+
+    /**
+     * 将数据包放入缓冲区，每刻结束时同一玩家的数据包合并为一次刷新发送
+     * 适用于同一刻内向同一玩家发送大量数据包的场景（全息、粒子、计分板等）
+     */
+    public static void sendPacketBuffered(Player player, Object packet) {
+        packetBuffers.computeIfAbsent(player.getUniqueId(), uuid -> new ConcurrentLinkedQueue<>()).add(packet);
+    }
+
+    @TSchedule(period = 1)
+    public static void flushPackets() {
+        packetBuffers.forEach((uuid, buffer) -> {
+            if (buffer.isEmpty()) {
+                return;
+            }
+            List<Object> packets = Lists.newArrayListWithCapacity(buffer.size());
+            Object packet;
+            while ((packet = buffer.poll()) != null) {
+                packets.add(packet);
+            }
+            Player player = Bukkit.getPlayer(uuid);
+            if (player != null && player.isOnline()) {
+                sendPackets(player, packets);
+            } else {
+                packets.forEach(ReferenceCountUtil::release);
+                packetBuffers.remove(uuid, buffer);
+                release(buffer);
+            }
+        });
+    }
+
+    /**
+     * 释放未发送的预编码数据包
+     */
+    private static void release(Queue<Object> buffer) {
+        if (buffer != null) {
+            Object packet;
+            while ((packet = buffer.poll()) != null) {
+                ReferenceCountUtil.release(packet);
+            }
+        }
+    }
+
     public static void addListener(Plugin plugin, TPacketListener listener) {
+        listener.stats = HandlerProfiler.getStats(HandlerProfiler.PACKET, plugin.getName(), listener.getName());
         packetListeners.computeIfAbsent(plugin.getName(), name -> Lists.newCopyOnWriteArrayList()).add(listener);
+        rebuild();
     }
 
     public static void removeListener(Plugin plugin) {
-        packetListeners.remove(plugin.getName());
+        if (packetListeners.remove(plugin.getName()) != null) {
+            rebuild();
+        }
     }
 
     public static void removeListener(Plugin plugin, TPacketListener listener) {
-        Optional.ofNullable(packetListeners.get(plugin.getName())).ifPresent(list -> list.remove(listener));
+        Optional.ofNullable(packetListeners.get(plugin.getName())).ifPresent(list -> {
+            if (list.remove(listener)) {
+                rebuild();
+            }
+        });
+    }
+
+    /**
+     * 获取监听该类型数据包发送的监听器，没有监听器时返回空数组
+     */
+    public static TPacketListener[] getSendListeners(Class<?> packetClass) {
+        Map<Class<?>, TPacketListener[]> table = sendListeners;
+        TPacketListener[] listeners = table.get(packetClass);
+        if (listeners == null) {
+            listeners = collect(packetClass, true);
+            table.put(packetClass, listeners);
+        }
+        return listeners;
+    }
+
+    /**
+     * 获取监听该类型数据包接收的监听器，没有监听器时返回空数组
+     */
+    public static TPacketListener[] getReceiveListeners(Class<?> packetClass) {
+        Map<Class<?>, TPacketListener[]> table = receiveListeners;
+        TPacketListener[] listeners = table.get(packetClass);
+        if (listeners == null) {
+            listeners = collect(packetClass, false);
+            table.put(packetClass, listeners);
+        }
+        return listeners;
     }
 
     public static Collection<List<TPacketListener>> getListeners() {
         return packetListeners.values();
     }
+
+    /**
+     * 监听器单次处理超出 PACKET-LISTENER-BUDGET（毫秒）时输出警告，每个监听器每分钟最多一次
+     */
+    public static void checkBudget(TPacketListener listener, long nanos) {
+        if (budget < 0) {
+            budget = TimeUnit.MILLISECONDS.toNanos(TabooLib.getConfig().getLong("PACKET-LISTENER-BUDGET", 5));
+        }
+        if (budget > 0 && nanos > budget) {
+            long time = System.currentTimeMillis();
+            if (time - listener.lastWarning > TimeUnit.MINUTES.toMillis(1)) {
+                listener.lastWarning = time;
+                TLogger.getGlobalLogger().warn("Packet listener " + listener.getName() + " took " + TimeUnit.NANOSECONDS.toMillis(nanos) + "ms" + (listener.isAsync() ? " (async)" : " on the network thread") + ".");
+            }
+        }
+    }
+
+    private static TPacketListener[] collect(Class<?> packetClass, boolean send) {
+        TPacketListener[] listeners = packetListeners.values().stream()
+                .flatMap(Collection::stream)
+                .filter(listener -> (send ? listener.isSendObject() || listener.isSendPacket() : listener.isReceiveObject() || listener.isReceivePacket()) && listener.isListening(packetClass))
+                .sorted(Comparator.comparing(TPacketListener::isAsync))
+                .toArray(TPacketListener[]::new);
+        return listeners.length == 0 ? EMPTY : listeners;
+    }
+
+    /**
+     * 旧表在替换前可能仍被写入，因此整体替换而不是清空
+     */
+    private static void rebuild() {
+        sendListeners = new ConcurrentHashMap<>();
+        receiveListeners = new ConcurrentHashMap<>();
+    }
 }
@@ -1,13 +1,52 @@
 package io.izzel.taboolib.module.packet;
 
+import com.google.common.collect.Sets;
+import io.izzel.taboolib.module.profiler.HandlerStats;
 import org.bukkit.entity.Player;
 
+import java.util.Set;
+
 /**
+ * 只有被重写的方法会被调用，构造时可以指定监听的数据包名称（留空则监听所有数据包）
+ *
  * @Author 坏黑
  * @Since 2018-10-28 14:35
  */
 public abstract class TPacketListener {
 
+    String name;
+    volatile long lastWarning;
+    HandlerStats stats;
+    private final boolean async;
+    private final Set<String> packets;
+    private final boolean sendObject;
+    private final boolean sendPacket;
+    private final boolean receiveObject;
+    private final boolean receivePacket;
+
+    public TPacketListener() {
+        this(false);
+    }
+
+    public TPacketListener(String... packets) {
+        this(false, packets);
+    }
+
+    /**
+     * @param async 是否在异步线程中执行，异步监听器的返回值将被忽略
+     */
+    public TPacketListener(boolean async, String... packets) {
+        this.async = async;
+        this.packets = packets.length == 0 ? null : Sets.newHashSet();
+        for (String packet : packets) {
+            this.packets.add(packet.toLowerCase());
+        }
+        this.sendObject = isOverridden("onSend", Object.class);
+        this.sendPacket = isOverridden("onSend", Packet.class);
+        this.receiveObject = isOverridden("onReceive", Object.class);
+        this.receivePacket = isOverridden("onReceive", Packet.class);
+    }
+
     public boolean onSend(Player player, Object packet) {
         return true;
     }
@@ -23,4 +62,47 @@ public abstract class TPacketListener {
     public boolean onReceive(Player player, Packet packet) {
         return true;
     }
+
+    public String getName() {
+        return name == null ? getClass().getName() : name;
+    }
+
+    /**
+     * 监听器的耗时统计，注册前为 null
+     */
+    public HandlerStats getStats() {
+        return stats;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public boolean isListening(Class<?> packetClass) {
+        return packets == null || packets.contains(packetClass.getSimpleName().toLowerCase());
+    }
+
+    public boolean isSendObject() {
+        return sendObject;
+    }
+
+    public boolean isSendPacket() {
+        return sendPacket;
+    }
+
+    public boolean isReceiveObject() {
+        return receiveObject;
+    }
+
+    public boolean isReceivePacket() {
+        return receivePacket;
+    }
+
+    private boolean isOverridden(String name, Class<?> type) {
+        try {
+            return getClass().getMethod(name, Player.class, type).getDeclaringClass() != TPacketListener.class;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
 }
@@ -30,33 +30,33 @@ public class TPacketLoader implements TabooLibLoader.Loader {
                 // object type
                 if (Arrays.equals(method.getParameterTypes(), new Class[] {Player.class, Object.class})) {
                     for (Object i : instance) {
-                        TPacketHandler.addListener(plugin, new TPacketListener() {
+                        TPacketHandler.addListener(plugin, named(pluginClass, method, packet.type() == TPacket.Type.SEND ? new TPacketListener(packet.async(), packet.packets()) {
                             @Override
                             public boolean onSend(Player player, Object p) {
-                                return eval(i, packet, TPacket.Type.SEND, packetType, method, player, p);
+                                return eval(i, packetType, method, player, p);
                             }
-
+                        } : new TPacketListener(packet.async(), packet.packets()) {
                             @Override
                             public boolean onReceive(Player player, Object p) {
-                                return eval(i, packet, TPacket.Type.RECEIVE, packetType, method, player, p);
+                                return eval(i, packetType, method, player, p);
                             }
-                        });
+                        }));
                     }
                 }
                 // packet type
                 else if (Arrays.equals(method.getParameterTypes(), new Class[] {Player.class, Packet.class})) {
                     for (Object i : instance) {
-                        TPacketHandler.addListener(plugin, new TPacketListener() {
+                        TPacketHandler.addListener(plugin, named(pluginClass, method, packet.type() == TPacket.Type.SEND ? new TPacketListener(packet.async(), packet.packets()) {
                             @Override
                             public boolean onSend(Player player, Packet p) {
-                                return eval(i, packet, TPacket.Type.SEND, packetType, method, player, p);
+                                return eval(i, packetType, method, player, p);
                             }
-
+                        } : new TPacketListener(packet.async(), packet.packets()) {
                             @Override
                             public boolean onReceive(Player player, Packet p) {
-                                return eval(i, packet, TPacket.Type.RECEIVE, packetType, method, player, p);
+                                return eval(i, packetType, method, player, p);
                             }
-                        });
+                        }));
                     }
                 } else {
                     TLogger.getGlobalLogger().error(method.getName() + " is an invalid packet listener. (" + pluginClass.getName() + ")");
@@ -66,15 +66,17 @@ public class TPacketLoader implements TabooLibLoader.Loader {
         }
     }
 
-    private boolean eval(Object instance, TPacket packet, TPacket.Type type, boolean packetType, Method method, Player player, Object obj) {
-        if (packet.type() == type) {
-            try {
-                return !packetType || (boolean) method.invoke(instance, player, obj);
-            } catch (Throwable t) {
-                t.printStackTrace();
-            }
-            return false;
+    private TPacketListener named(Class<?> pluginClass, Method method, TPacketListener listener) {
+        listener.name = pluginClass.getName() + "#" + method.getName();
+        return listener;
+    }
+
+    private boolean eval(Object instance, boolean packetType, Method method, Player player, Object obj) {
+        try {
+            return !packetType || (boolean) method.invoke(instance, player, obj);
+        } catch (Throwable t) {
+            t.printStackTrace();
         }
-        return true;
+        return false;
     }
 }
@@ -1,15 +1,27 @@
 package io.izzel.taboolib.module.packet.channel;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import io.izzel.taboolib.TabooLib;
 import io.izzel.taboolib.module.packet.Packet;
 import io.izzel.taboolib.module.packet.TPacketHandler;
+import io.izzel.taboolib.module.packet.TPacketListener;
+import io.izzel.taboolib.module.profiler.HandlerProfiler;
+import io.izzel.taboolib.module.profiler.HandlerStats;
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelPromise;
+import io.netty.util.ReferenceCountUtil;
+import org.apache.commons.lang3.concurrent.BasicThreadFactory;
 import org.bukkit.entity.Player;
 
 import java.util.Collection;
-import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -19,31 +31,185 @@ import java.util.concurrent.Executors;
  */
 public abstract class ChannelExecutor {
 
-    private ExecutorService addChannelService = Executors.newSingleThreadExecutor();
-    private ExecutorService removeChannelService = Executors.newSingleThreadExecutor();
+    public static final String HANDLER_NAME = "taboolib5_packet_handler";
+    public static final String SERVER_HANDLER_NAME = "taboolib5_server_handler";
+
+    // 登录中的玩家名 -> 尚未绑定玩家的监听器
+    private final Map<String, ChannelHandler> logins = Maps.newConcurrentMap();
+    private final List<Channel> serverChannels = Lists.newCopyOnWriteArrayList();
+    private volatile ExecutorService asyncService;
 
     public abstract void sendPacket(Player player, Object packet);
 
     public abstract Channel getPlayerChannel(Player player);
 
+    /**
+     * 服务器监听端口的连接
+     */
+    public abstract List<Channel> getServerChannels();
+
+    /**
+     * 从登录数据包中读取玩家名，其他数据包返回 null
+     */
+    public abstract String getLoginName(Object packet);
+
+    /**
+     * 在玩家的 Netty 线程中依次写入所有数据包后只刷新一次
+     */
+    public void sendPackets(Player player, Collection<?> packets) {
+        if (packets.isEmpty()) {
+            return;
+        }
+        Channel channel = getPlayerChannel(player);
+        if (channel.eventLoop().inEventLoop()) {
+            writeAndFlush(channel, packets);
+        } else {
+            // 调用者可能在返回后复用该集合
+            List<Object> copy = Lists.newArrayList(packets);
+            channel.eventLoop().execute(() -> writeAndFlush(channel, copy));
+        }
+    }
+
+    public boolean isPacket(Object packet) {
+        return true;
+    }
+
+    /**
+     * 将数据包编码为可以直接写入连接的数据（包含数据包序号，不包含长度），当前版本不支持时返回 null
+     */
+    public ByteBuf serialize(Object packet) {
+        return null;
+    }
+
+    private void writeAndFlush(Channel channel, Collection<?> packets) {
+        if (!channel.isOpen()) {
+            packets.forEach(ReferenceCountUtil::release);
+            return;
+        }
+        for (Object packet : packets) {
+            channel.write(packet);
+        }
+        channel.flush();
+    }
+
+    /**
+     * 在服务器连接的初始化流程中注入，新连接在握手阶段即可被监听
+     *
+     * @return 是否找到服务器连接
+     */
+    public boolean addServerChannels() {
+        List<Channel> channels = getServerChannels();
+        for (Channel channel : channels) {
+            if (channel.pipeline().get(SERVER_HANDLER_NAME) == null) {
+                channel.pipeline().addFirst(SERVER_HANDLER_NAME, new ServerHandler());
+                serverChannels.add(channel);
+            }
+        }
+        return !channels.isEmpty();
+    }
+
+    public void removeServerChannels() {
+        for (Channel channel : serverChannels) {
+            channel.eventLoop().execute(() -> {
+                if (channel.pipeline().get(SERVER_HANDLER_NAME) != null) {
+                    channel.pipeline().remove(SERVER_HANDLER_NAME);
+                }
+            });
+        }
+        serverChannels.clear();
+    }
+
+    /**
+     * 将登录阶段注入的监听器与玩家绑定，在此之前的数据包不会交给监听器
+     */
+    public void bindPlayer(Player player) {
+        ChannelHandler handler = logins.remove(player.getName());
+        if (handler != null) {
+            handler.player = player;
+        }
+    }
+
+    /**
+     * 确保玩家连接中存在监听器，可重复调用
+     * 所有对连接的修改都在连接自身的 Netty 线程中进行，因此同一玩家的注入与移除按调用顺序执行
+     */
     public void addPlayerChannel(Player player) {
-        addChannelService.submit(() -> {
-            getPlayerChannel(player).pipeline().addBefore("packet_handler", "taboolib5_packet_handler", new ChannelHandler(player));
+        Channel channel = getPlayerChannel(player);
+        channel.eventLoop().execute(() -> {
+            io.netty.channel.ChannelHandler handler = channel.pipeline().get(HANDLER_NAME);
+            if (handler instanceof ChannelHandler) {
+                ((ChannelHandler) handler).player = player;
+            } else if (handler == null && channel.pipeline().get("packet_handler") != null) {
+                channel.pipeline().addBefore("packet_handler", HANDLER_NAME, new ChannelHandler(player));
+            }
         });
     }
 
     public void removePlayerChannel(Player player) {
-        removeChannelService.submit(() -> {
-            Channel playerChannel = getPlayerChannel(player);
-            if (playerChannel.pipeline().get("taboolib5_packet_handler") != null) {
-                playerChannel.pipeline().remove("taboolib5_packet_handler");
+        Channel channel = getPlayerChannel(player);
+        channel.eventLoop().execute(() -> {
+            if (channel.pipeline().get(HANDLER_NAME) != null) {
+                channel.pipeline().remove(HANDLER_NAME);
             }
         });
     }
 
+    private void injectChannel(Channel channel) {
+        if (channel.isOpen() && channel.pipeline().get(HANDLER_NAME) == null && channel.pipeline().get("packet_handler") != null) {
+            channel.pipeline().addBefore("packet_handler", HANDLER_NAME, new ChannelHandler(null));
+        }
+    }
+
+    /**
+     * 异步监听器使用的线程池，首次使用时创建
+     */
+    public ExecutorService getAsyncService() {
+        if (asyncService == null) {
+            synchronized (this) {
+                if (asyncService == null) {
+                    int threads = Math.max(1, TabooLib.getConfig().getInt("PACKET-ASYNC-THREADS", 2));
+                    asyncService = Executors.newFixedThreadPool(threads, new BasicThreadFactory.Builder().namingPattern("TabooLib-PacketListener-%d").daemon(true).build());
+                }
+            }
+        }
+        return asyncService;
+    }
+
+    /**
+     * 关闭异步监听器使用的线程池，避免插件卸载后线程仍然存活
+     */
+    public synchronized void shutdownAsyncService() {
+        if (asyncService != null) {
+            asyncService.shutdown();
+            asyncService = null;
+        }
+    }
+
+    /**
+     * 服务器连接接受新连接时，在新连接的初始化完成后注入监听器
+     */
+    class ServerHandler extends ChannelInboundHandlerAdapter {
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            if (msg instanceof Channel) {
+                ((Channel) msg).pipeline().addFirst(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel channel) {
+                        // 此时服务端的初始化器尚未执行
+                        channel.eventLoop().execute(() -> injectChannel(channel));
+                    }
+                });
+            }
+            super.channelRead(ctx, msg);
+        }
+    }
+
     class ChannelHandler extends ChannelDuplexHandler {
 
-        private Player player;
+        private volatile Player player;
+        private String name;
+        private OrderedExecutor asyncExecutor;
 
         public ChannelHandler(Player player) {
             this.player = player;
@@ -51,28 +217,92 @@ public abstract class ChannelExecutor {
 
         @Override
         public void write(ChannelHandlerContext channelHandlerContext, Object o, ChannelPromise channelPromise) throws Exception {
-            try {
-                if (TPacketHandler.getListeners().stream().flatMap(Collection::stream).anyMatch(packetListener -> !packetListener.onSend(player, o) || !packetListener.onSend(player, new Packet(o)))) {
-                    return;
-                }
-            } catch (ConcurrentModificationException ignore) {
-            } catch (Exception e) {
-                e.printStackTrace();
+            // 预编码的数据包不经过监听器
+            if (player == null || o instanceof ByteBuf) {
+                super.write(channelHandlerContext, o, channelPromise);
+                return;
+            }
+            TPacketListener[] listeners = TPacketHandler.getSendListeners(o.getClass());
+            // 没有监听器时直接放行
+            if (listeners.length > 0 && isCancelled(listeners, o, true)) {
+                return;
             }
             super.write(channelHandlerContext, o, channelPromise);
         }
 
         @Override
         public void channelRead(ChannelHandlerContext channelHandlerContext, Object o) throws Exception {
-            try {
-                if (TPacketHandler.getListeners().stream().flatMap(Collection::stream).anyMatch(packetListener -> !packetListener.onReceive(player, o) || !packetListener.onReceive(player, new Packet(o)))) {
-                    return;
+            if (player == null) {
+                // 记录登录的玩家名，等待玩家登录后绑定
+                if (name == null && (name = getLoginName(o)) != null) {
+                    logins.put(name, this);
                 }
-            } catch (ConcurrentModificationException ignore) {
-            } catch (Exception e) {
-                e.printStackTrace();
+                super.channelRead(channelHandlerContext, o);
+                return;
+            }
+            TPacketListener[] listeners = TPacketHandler.getReceiveListeners(o.getClass());
+            if (listeners.length > 0 && isCancelled(listeners, o, false)) {
+                return;
             }
             super.channelRead(channelHandlerContext, o);
         }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext channelHandlerContext) throws Exception {
+            if (name != null) {
+                logins.remove(name, this);
+            }
+            super.channelInactive(channelHandlerContext);
+        }
+
+        /**
+         * 同步监听器排在异步监听器之前，因此异步监听器只会收到未被取消的数据包
+         */
+        private boolean isCancelled(TPacketListener[] listeners, Object o, boolean send) {
+            Packet packet = null;
+            for (TPacketListener listener : listeners) {
+                boolean useObject = send ? listener.isSendObject() : listener.isReceiveObject();
+                boolean usePacket = send ? listener.isSendPacket() : listener.isReceivePacket();
+                if (usePacket && packet == null) {
+                    packet = new Packet(o);
+                }
+                if (listener.isAsync()) {
+                    Packet p = packet;
+                    getAsyncExecutor().execute(() -> call(listener, o, p, send, useObject, usePacket));
+                } else if (!call(listener, o, packet, send, useObject, usePacket)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean call(TPacketListener listener, Object o, Packet packet, boolean send, boolean useObject, boolean usePacket) {
+            HandlerStats stats = HandlerProfiler.isEnabled() ? listener.getStats() : null;
+            long allocated = stats == null ? 0 : HandlerProfiler.getAllocatedBytes();
+            long time = System.nanoTime();
+            boolean result = true;
+            try {
+                if (useObject && !(send ? listener.onSend(player, o) : listener.onReceive(player, o))) {
+                    return result = false;
+                }
+                return result = !usePacket || (send ? listener.onSend(player, packet) : listener.onReceive(player, packet));
+            } catch (Throwable t) {
+                t.printStackTrace();
+                return true;
+            } finally {
+                long nanos = System.nanoTime() - time;
+                TPacketHandler.checkBudget(listener, nanos);
+                if (stats != null) {
+                    stats.record(nanos, HandlerProfiler.getAllocatedBytes() - allocated, !result && !listener.isAsync());
+                }
+            }
+        }
+
+        private OrderedExecutor getAsyncExecutor() {
+            if (asyncExecutor == null) {
+                asyncExecutor = new OrderedExecutor(player.getName(), getAsyncService());
+            }
+            return asyncExecutor;
+        }
     }
 }
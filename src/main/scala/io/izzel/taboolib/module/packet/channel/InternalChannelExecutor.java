@@ -1,17 +1,34 @@
 package io.izzel.taboolib.module.packet.channel;
 
+import com.google.common.collect.Lists;
+import io.izzel.taboolib.Version;
 import io.izzel.taboolib.module.locale.logger.TLogger;
+import io.izzel.taboolib.util.Ref;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import net.minecraft.server.v1_8_R3.EnumProtocol;
+import net.minecraft.server.v1_8_R3.EnumProtocolDirection;
+import net.minecraft.server.v1_8_R3.MinecraftServer;
 import net.minecraft.server.v1_8_R3.Packet;
+import net.minecraft.server.v1_8_R3.PacketDataSerializer;
+import net.minecraft.server.v1_8_R3.PacketLoginInStart;
+import net.minecraft.server.v1_8_R3.ServerConnection;
 import org.bukkit.craftbukkit.v1_8_R3.entity.CraftPlayer;
 import org.bukkit.entity.Player;
 
+import java.lang.reflect.Field;
+import java.util.List;
+
 /**
  * @Author 坏黑
  * @Since 2018-10-28 15:12
  */
 public class InternalChannelExecutor extends ChannelExecutor {
 
+    private final boolean serializable = "v1_8_R3".equals(Version.getBukkitVersion());
+
     @Override
     public void sendPacket(Player player, Object packet) {
         if (packet instanceof Packet) {
@@ -21,8 +38,80 @@ public class InternalChannelExecutor extends ChannelExecutor {
         }
     }
 
+    @Override
+    public boolean isPacket(Object packet) {
+        return packet instanceof Packet || packet instanceof ByteBuf;
+    }
+
+    /**
+     * 该类会被转换到当前服务端版本，而编码使用的方法只在 1.8.8 中有效，其他版本返回 null
+     */
+    @Override
+    public ByteBuf serialize(Object packet) {
+        if (!serializable || !(packet instanceof Packet)) {
+            return null;
+        }
+        try {
+            Integer id = EnumProtocol.PLAY.a(EnumProtocolDirection.CLIENTBOUND, (Packet) packet);
+            if (id == null) {
+                return null;
+            }
+            ByteBuf buf = Unpooled.buffer();
+            PacketDataSerializer serializer = new PacketDataSerializer(buf);
+            serializer.b(id);
+            ((Packet) packet).b(serializer);
+            return buf;
+        } catch (Throwable t) {
+            t.printStackTrace();
+        }
+        return null;
+    }
+
     @Override
     public Channel getPlayerChannel(Player player) {
         return ((CraftPlayer) player).getHandle().playerConnection.networkManager.channel;
     }
+
+    @Override
+    public List<Channel> getServerChannels() {
+        List<Channel> channels = Lists.newArrayList();
+        // 字段名随版本变化，按类型查找
+        Object connection = null;
+        for (Field field : MinecraftServer.class.getDeclaredFields()) {
+            if (field.getType().equals(ServerConnection.class)) {
+                connection = Ref.getField(MinecraftServer.getServer(), field);
+                break;
+            }
+        }
+        if (connection == null) {
+            return channels;
+        }
+        for (Field field : ServerConnection.class.getDeclaredFields()) {
+            if (List.class.isAssignableFrom(field.getType())) {
+                Object value = Ref.getField(connection, field);
+                if (value instanceof List) {
+                    synchronized (value) {
+                        for (Object future : (List<?>) value) {
+                            if (future instanceof ChannelFuture) {
+                                channels.add(((ChannelFuture) future).channel());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return channels;
+    }
+
+    @Override
+    public String getLoginName(Object packet) {
+        if (packet instanceof PacketLoginInStart) {
+            try {
+                return ((PacketLoginInStart) packet).a().getName();
+            } catch (Throwable t) {
+                t.printStackTrace();
+            }
+        }
+        return null;
+    }
 }
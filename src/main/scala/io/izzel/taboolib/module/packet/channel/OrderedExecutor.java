@@ -0,0 +1,88 @@
+package io.izzel.taboolib.module.packet.channel;
+
+import io.izzel.taboolib.module.locale.logger.TLogger;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 在共享线程池中按提交顺序依次执行任务，同一时间最多占用一个线程
+ * 每轮最多执行 BATCH 个任务后让出线程，等待的任务超过 MAX_PENDING 时丢弃新任务
+ *
+ * @Since 2026-10-18 21:40
+ */
+public class OrderedExecutor implements Executor {
+
+    private static final int BATCH = 64;
+    private static final int MAX_PENDING = 8192;
+
+    private final String name;
+    private final Executor executor;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder dropped = new LongAdder();
+
+    public OrderedExecutor(String name, Executor executor) {
+        this.name = name;
+        this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (pending.incrementAndGet() > MAX_PENDING) {
+            pending.decrementAndGet();
+            dropped.increment();
+            if (dropped.sum() == 1) {
+                TLogger.getGlobalLogger().warn("Too many pending packet tasks, dropping. (" + name + ")");
+            }
+            return;
+        }
+        tasks.add(task);
+        schedule();
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    private void schedule() {
+        if (!tasks.isEmpty() && running.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // 线程池已关闭，丢弃剩余任务
+                running.set(false);
+                while (tasks.poll() != null) {
+                    pending.decrementAndGet();
+                }
+            }
+        }
+    }
+
+    private void drain() {
+        try {
+            Runnable task;
+            for (int i = 0; i < BATCH && (task = tasks.poll()) != null; i++) {
+                pending.decrementAndGet();
+                try {
+                    task.run();
+                } catch (Throwable t) {
+                    t.printStackTrace();
+                }
+            }
+        } finally {
+            running.set(false);
+            schedule();
+        }
+    }
+}
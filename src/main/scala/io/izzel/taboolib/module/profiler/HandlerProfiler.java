@@ -0,0 +1,95 @@
+package io.izzel.taboolib.module.profiler;
+
+import com.google.common.collect.Maps;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import io.izzel.taboolib.TabooLib;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * 数据包监听器（TPacket）与事件监听器（TListener）的耗时统计
+ * 事件监听器只有在注册时启用统计（PROFILER）才会被记录，数据包监听器可以随时开启或关闭
+ * 分配字节数依赖 HotSpot 的 ThreadMXBean，不支持时记为 0
+ *
+ * @Since 2026-10-18 22:10
+ */
+public class HandlerProfiler {
+
+    public static final String PACKET = "packet";
+    public static final String EVENT = "event";
+
+    private static final Map<String, HandlerStats> stats = Maps.newConcurrentMap();
+    private static final com.sun.management.ThreadMXBean threadBean = getThreadBean();
+    private static volatile Boolean enabled;
+
+    public static boolean isEnabled() {
+        if (enabled == null) {
+            enabled = TabooLib.getConfig().getBoolean("PROFILER", false);
+        }
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        HandlerProfiler.enabled = enabled;
+    }
+
+    public static HandlerStats getStats(String type, String plugin, String name) {
+        return stats.computeIfAbsent(type + ":" + plugin + ":" + name, key -> new HandlerStats(type, plugin, name));
+    }
+
+    public static Collection<HandlerStats> getStats() {
+        return stats.values();
+    }
+
+    /**
+     * 按总耗时从高到低排序
+     */
+    public static List<HandlerStats> getTop(int limit) {
+        return stats.values().stream().filter(stats -> stats.getCount() > 0).sorted(Comparator.comparingLong(HandlerStats::getTotalNanos).reversed()).limit(limit).collect(Collectors.toList());
+    }
+
+    public static void reset() {
+        stats.values().forEach(HandlerStats::reset);
+    }
+
+    /**
+     * 当前线程已分配的字节数，不支持时返回 0
+     */
+    public static long getAllocatedBytes() {
+        return threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public static boolean isAllocationSupported() {
+        return threadBean != null;
+    }
+
+    public static String toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("time", System.currentTimeMillis());
+        json.addProperty("allocationSupported", isAllocationSupported());
+        JsonArray handlers = new JsonArray();
+        getTop(Integer.MAX_VALUE).forEach(stats -> handlers.add(stats.toJson()));
+        json.add("handlers", handlers);
+        return new GsonBuilder().setPrettyPrinting().create().toJson(json);
+    }
+
+    private static com.sun.management.ThreadMXBean getThreadBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+                ((com.sun.management.ThreadMXBean) bean).setThreadAllocatedMemoryEnabled(true);
+                return (com.sun.management.ThreadMXBean) bean;
+            }
+        } catch (Throwable ignored) {
+        }
+        return null;
+    }
+}
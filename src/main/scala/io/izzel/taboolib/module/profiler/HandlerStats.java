@@ -0,0 +1,122 @@
+package io.izzel.taboolib.module.profiler;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个处理器（数据包监听器或事件监听方法）的统计
+ * 耗时分布见 {@link LatencyHistogram}
+ *
+ * @Since 2026-10-18 22:10
+ */
+public class HandlerStats {
+
+    private final String type;
+    private final String plugin;
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+
+    public HandlerStats(String type, String plugin, String name) {
+        this.type = type;
+        this.plugin = plugin;
+        this.name = name;
+    }
+
+    /**
+     * @param allocated 本次调用分配的字节数，无法获取时为 0
+     * @param cancelled 本次调用是否取消了数据包或事件
+     */
+    public void record(long nanos, long allocated, boolean cancelled) {
+        latency.record(nanos);
+        if (allocated > 0) {
+            allocatedBytes.add(allocated);
+        }
+        if (cancelled) {
+            this.cancelled.increment();
+        }
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public String getPlugin() {
+        return plugin;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getCount() {
+        return latency.getCount();
+    }
+
+    public long getTotalNanos() {
+        return latency.getTotalNanos();
+    }
+
+    public long getMeanNanos() {
+        return latency.getMeanNanos();
+    }
+
+    public long getMaxNanos() {
+        return latency.getMaxNanos();
+    }
+
+    /**
+     * @param percentile 0 ~ 1
+     */
+    public long getPercentileNanos(double percentile) {
+        return latency.getPercentileNanos(percentile);
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    public long getCancelled() {
+        return cancelled.sum();
+    }
+
+    public double getCancelRatio() {
+        long count = latency.getCount();
+        return count == 0 ? 0 : (double) cancelled.sum() / count;
+    }
+
+    public void reset() {
+        latency.reset();
+        allocatedBytes.reset();
+        cancelled.reset();
+    }
+
+    public JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        json.addProperty("type", type);
+        json.addProperty("plugin", plugin);
+        json.addProperty("name", name);
+        json.addProperty("count", getCount());
+        json.addProperty("totalNanos", getTotalNanos());
+        json.addProperty("meanNanos", getMeanNanos());
+        json.addProperty("p50Nanos", getPercentileNanos(0.5));
+        json.addProperty("p99Nanos", getPercentileNanos(0.99));
+        json.addProperty("maxNanos", getMaxNanos());
+        json.addProperty("allocatedBytes", getAllocatedBytes());
+        json.addProperty("cancelled", getCancelled());
+        json.addProperty("cancelRatio", getCancelRatio());
+        return json;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, total=%.2fms, mean=%dns, p50=%dns, p99=%dns, max=%dns, alloc=%dB, cancel=%.1f%%", getCount(), getTotalNanos() / (double) TimeUnit.MILLISECONDS.toNanos(1), getMeanNanos(), getPercentileNanos(0.5), getPercentileNanos(0.99), getMaxNanos(), getAllocatedBytes(), getCancelRatio() * 100);
+    }
+}
@@ -0,0 +1,103 @@
+package io.izzel.taboolib.module.profiler;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 延迟分布
+ * 以纳秒为单位按 2 的幂分桶，百分位数返回所在桶的上界，误差不超过一倍
+ *
+ * @Since 2026-10-18 20:10
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        // 第 i 个桶记录 [2^(i-1), 2^i) 范围内的值，第 0 个桶只记录 0
+        buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos))].increment();
+        count.increment();
+        total.add(nanos);
+        long current;
+        while (nanos > (current = max.get()) && !max.compareAndSet(current, nanos)) {
+        }
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getTotalNanos() {
+        return total.sum();
+    }
+
+    public long getMeanNanos() {
+        long count = this.count.sum();
+        return count == 0 ? 0 : total.sum() / count;
+    }
+
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile 0 ~ 1
+     */
+    public long getPercentileNanos(double percentile) {
+        long count = this.count.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(count * percentile);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets[i].sum();
+            if (seen >= target) {
+                return Math.min(i == 0 ? 0 : (1L << i) - 1, max.get());
+            }
+        }
+        return max.get();
+    }
+
+    public double getMeanMillis() {
+        long count = this.count.sum();
+        return count == 0 ? 0 : total.sum() / 1000000D / count;
+    }
+
+    public double getMaxMillis() {
+        return max.get() / 1000000D;
+    }
+
+    /**
+     * @param percentile 0 ~ 1
+     */
+    public double getPercentileMillis(double percentile) {
+        return getPercentileNanos(percentile) / 1000000D;
+    }
+
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        count.reset();
+        total.reset();
+        max.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.2fms, p50=%.2fms, p99=%.2fms, max=%.2fms", getCount(), getMeanMillis(), getPercentileMillis(0.5), getPercentileMillis(0.99), getMaxMillis());
+    }
+}